@@ -0,0 +1,9 @@
+package exceptions;
+
+import java.io.IOException;
+
+public class MalformedJsonException extends IOException {
+    public MalformedJsonException(String message) {
+        super(message);
+    }
+}
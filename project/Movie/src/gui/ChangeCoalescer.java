@@ -0,0 +1,148 @@
+package gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * Collects catalog changes (added or changed movie / series rows) and applies them
+ * together once per frame, so a burst of changes (an import, many ratings) costs one
+ * search, one Top update and one rankings refresh instead of one per change.
+ * A row changed several times within a frame is applied once.
+ * Changes may be recorded from any thread; the batch is always applied on the FX thread.
+ * Rankings are updated on their own event thread and report separately (rankingsChanged),
+ * so views showing them re-read them only once they include the change.
+ */
+public class ChangeCoalescer {
+
+    /**
+     * The changes gathered during one frame, as row ids (indexes into DataLoader.movies / DataLoader.seriesList).
+     */
+    public static class Batch {
+        private final BitSet addedMovies = new BitSet();
+        private final BitSet changedMovies = new BitSet();
+        private final BitSet addedSeries = new BitSet();
+        private final BitSet changedSeries = new BitSet();
+        private boolean rankingsChanged;
+        private int changeCount;
+
+        public BitSet getAddedMovies() {
+            return addedMovies;
+        }
+
+        // Does not include added rows
+        public BitSet getChangedMovies() {
+            return changedMovies;
+        }
+
+        public BitSet getAddedSeries() {
+            return addedSeries;
+        }
+
+        // Does not include added rows
+        public BitSet getChangedSeries() {
+            return changedSeries;
+        }
+
+        public boolean hasMovieChanges() {
+            return !addedMovies.isEmpty() || !changedMovies.isEmpty();
+        }
+
+        public boolean hasSeriesChanges() {
+            return !addedSeries.isEmpty() || !changedSeries.isEmpty();
+        }
+
+        // The rankings applied a change since the last frame
+        public boolean hasRankingChanges() {
+            return rankingsChanged;
+        }
+
+        // Number of recorded changes, before merging repeated changes of the same row
+        public int getChangeCount() {
+            return changeCount;
+        }
+    }
+
+    private final Consumer<Batch> applier;
+    private final AnimationTimer frameTimer;
+    private Batch pending = new Batch();
+    private boolean scheduled;
+
+    /**
+     * @param applier Applies a batch of changes to indexes, rankings and views. Runs on the FX thread.
+     */
+    public ChangeCoalescer(Consumer<Batch> applier) {
+        this.applier = applier;
+        this.frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                flush();
+            }
+        };
+    }
+
+    public void movieAdded(int row) {
+        record(batch -> batch.addedMovies.set(row));
+    }
+
+    public void movieChanged(int row) {
+        record(batch -> {
+            if (!batch.addedMovies.get(row)) {
+                batch.changedMovies.set(row);
+            }
+        });
+    }
+
+    public void seriesAdded(int row) {
+        record(batch -> batch.addedSeries.set(row));
+    }
+
+    public void seriesChanged(int row) {
+        record(batch -> {
+            if (!batch.addedSeries.get(row)) {
+                batch.changedSeries.set(row);
+            }
+        });
+    }
+
+    public void rankingsChanged() {
+        record(batch -> batch.rankingsChanged = true);
+    }
+
+    /**
+     * Applies the pending changes now instead of on the next frame.
+     * Must be called on the FX thread.
+     */
+    public void flush() {
+        Batch batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new Batch();
+            scheduled = false;
+        }
+        if (batch.changeCount > 0) {
+            applier.accept(batch);
+        }
+    }
+
+    private void record(Consumer<Batch> change) {
+        boolean schedule;
+        synchronized (this) {
+            change.accept(pending);
+            pending.changeCount++;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            // The timer fires on the next pulse, after everything queued for this frame
+            if (Platform.isFxApplicationThread()) {
+                frameTimer.start();
+            } else {
+                Platform.runLater(frameTimer::start);
+            }
+        }
+    }
+}
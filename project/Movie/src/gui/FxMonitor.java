@@ -0,0 +1,191 @@
+package gui;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long the FX application thread is kept busy.
+ * - time(action, work) records the duration of a handler in a latency histogram per action
+ *   and logs the action when it blocks the thread longer than the stall threshold.
+ * - A watchdog thread posts a heartbeat to the FX thread; when the heartbeat waits longer than
+ *   the threshold, the FX thread is stalled and its current stack is logged once per stall,
+ *   which also catches blocking code that isn't wrapped in time().
+ * - Layout pulses of a scene are measured with pulse listeners.
+ */
+public class FxMonitor {
+    public static final String HEARTBEAT = "FX queue (heartbeat)";
+    public static final String LAYOUT_PULSE = "Layout pulse";
+    private static final int STACK_DEPTH = 15; // Frames logged per stall
+
+    /**
+     * Latency summary of one action, as shown in the diagnostics tab.
+     */
+    public static class ActionStats {
+        private final String action;
+        private final long count;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final long stalls;
+
+        ActionStats(String action, LatencyHistogram histogram, long stalls) {
+            this.action = action;
+            this.count = histogram.getCount();
+            this.p50Millis = histogram.getPercentileMillis(50);
+            this.p99Millis = histogram.getPercentileMillis(99);
+            this.maxMillis = histogram.getMaxMillis();
+            this.stalls = stalls;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        // Times the action took longer than the stall threshold
+        public long getStalls() {
+            return stalls;
+        }
+    }
+
+    private final long thresholdNanos;
+    // Only touched on the FX thread
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Long> stallCounts = new LinkedHashMap<>();
+
+    // Shared with the watchdog
+    private volatile Thread fxThread;
+    private volatile String currentAction; // Outermost action in time(), or null
+    private volatile long heartbeatPostedAt; // 0 while no heartbeat is waiting
+    private volatile long layoutStartedAt;
+
+    /**
+     * @param thresholdMillis Blocking longer than this counts as a stall and is logged.
+     */
+    public FxMonitor(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * Starts the watchdog thread. Call on the FX thread.
+     */
+    public void start() {
+        fxThread = Thread.currentThread();
+        Thread watchdog = new Thread(this::watch, "fx-stall-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    // Measures layout pulses of the scene
+    public void monitor(Scene scene) {
+        scene.addPreLayoutPulseListener(() -> layoutStartedAt = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            if (layoutStartedAt != 0) {
+                record(LAYOUT_PULSE, System.nanoTime() - layoutStartedAt);
+                layoutStartedAt = 0;
+            }
+        });
+    }
+
+    /**
+     * Runs the work on the calling (FX) thread and records how long it took.
+     * @param action Name shown in the log and the diagnostics tab.
+     * @param work The handler to measure.
+     */
+    public void time(String action, Runnable work) {
+        boolean outermost = currentAction == null;
+        if (outermost) {
+            currentAction = action;
+        }
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (outermost) {
+                currentAction = null;
+            }
+            record(action, elapsed);
+            if (elapsed > thresholdNanos) {
+                System.err.printf("[WARNING] %s blocked the FX thread for %.1f ms%n", action, elapsed / 1_000_000.0);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of all actions, worst maximum first. Call on the FX thread.
+     */
+    public List<ActionStats> getStats() {
+        List<ActionStats> stats = new ArrayList<>();
+        histograms.forEach((action, histogram) ->
+                stats.add(new ActionStats(action, histogram, stallCounts.getOrDefault(action, 0L))));
+        stats.sort(Comparator.comparingDouble(ActionStats::getMaxMillis).reversed());
+        return stats;
+    }
+
+    private void record(String action, long nanos) {
+        histograms.computeIfAbsent(action, a -> new LatencyHistogram()).record(nanos);
+        if (nanos > thresholdNanos) {
+            stallCounts.merge(action, 1L, Long::sum);
+        }
+    }
+
+    // Watchdog loop: one heartbeat at a time, checked every quarter of the threshold
+    private void watch() {
+        long interval = Math.max(1, thresholdNanos / 4 / 1_000_000L);
+        boolean reported = false;
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long postedAt = heartbeatPostedAt;
+            if (postedAt == 0) {
+                reported = false;
+                heartbeatPostedAt = System.nanoTime();
+                Platform.runLater(() -> {
+                    record(HEARTBEAT, System.nanoTime() - heartbeatPostedAt);
+                    heartbeatPostedAt = 0;
+                });
+            } else if (!reported && System.nanoTime() - postedAt > thresholdNanos) {
+                reported = true; // Log each stall once, while it is still happening
+                logStall(System.nanoTime() - postedAt);
+            }
+        }
+    }
+
+    private void logStall(long blockedNanos) {
+        String action = currentAction;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[WARNING] FX thread stalled for %.1f ms%s%n", blockedNanos / 1_000_000.0,
+                action != null ? " in " + action : ""));
+        StackTraceElement[] stack = fxThread.getStackTrace();
+        for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++) {
+            sb.append("\tat ").append(stack[i]).append(System.lineSeparator());
+        }
+        System.err.print(sb);
+    }
+}
@@ -14,6 +14,8 @@ import utils.DataLoader;
 import java.io.IOException;
 
 public class LoginWindow extends Application {
+    // Users listed as a hint under the login form
+    private static final int MAX_LISTED_USERS = 10;
 
     private TextField usernameField;
     private TextField emailField;
@@ -123,11 +125,17 @@ public class LoginWindow extends Application {
 
         // Show available users from the loaded data
         if (!DataLoader.users.isEmpty()) {
-            for (User user : DataLoader.users) {
+            // Only the first few, the user file can hold hundreds of thousands of accounts
+            for (User user : DataLoader.users.subList(0, Math.min(MAX_LISTED_USERS, DataLoader.users.size()))) {
                 Label userLabel = new Label("👤 " + user.getUsername() + " (" + user.getEmail() + ")");
                 userLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #95a5a6;");
                 usersInfo.getChildren().add(userLabel);
             }
+            if (DataLoader.users.size() > MAX_LISTED_USERS) {
+                Label moreLabel = new Label("... και " + (DataLoader.users.size() - MAX_LISTED_USERS) + " ακόμη");
+                moreLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #95a5a6;");
+                usersInfo.getChildren().add(moreLabel);
+            }
         } else {
             Label noUsersLabel = new Label("Δεν βρέθηκαν χρήστες");
             noUsersLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #e74c3c;");
@@ -199,18 +207,15 @@ public class LoginWindow extends Application {
     }
 
     private User authenticateUser(String username, String email) {
-        return DataLoader.users.stream()
-                .filter(user -> user.verifyCredentials(username, email))
-                .findFirst()
-                .orElse(null);
+        return DataLoader.userDirectory.authenticate(username, email);
     }
 
     private void launchMainApplication(User user) {
         try {
             // Close login window
             primaryStage.close();
-            int loginId = MainApp.pickRandomNumber();
-            user.setId(loginId);
+            // The user keeps the id from the user file, which their ratings are keyed on
+            int loginId = user.getId();
 
             // Create and show main application
             MainApp mainApp = new MainApp(user);
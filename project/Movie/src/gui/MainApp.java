@@ -1,23 +1,37 @@
 package gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.Actor;
 import model.Director;
 import model.Movie;
 import model.Series;
 import model.Season; // Import Season class
 import model.Episode; // Assuming Episode is also in model package for total episodes calculation
+import storage.WorkingSet;
+import utils.CatalogEvent;
+import utils.CatalogEvents;
+import utils.CatalogJournal;
+import utils.CatalogListener;
+import utils.Collation;
 import utils.DataLoader;
-import java.util.Random;
+import utils.Rankings;
+import utils.RatingHistory;
+import utils.RowOrder;
+import utils.SortIndex;
 import model.User;
 import javax.swing.JTextField;
 import javax.swing.JOptionPane;
@@ -26,38 +40,84 @@ import exceptions.InvalidRatingException;
 
 import java.io.IOException;
 import java.time.LocalDate; // Import LocalDate for current year
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
 // Required for editable TableView cells
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.util.converter.IntegerStringConverter;
-import javafx.beans.property.SimpleIntegerProperty; // Import SimpleIntegerProperty
 
 public class MainApp extends Application {
 
     private TableView<Movie> movieTable;
     private TableView<Series> seriesTable;
-    private ObservableList<Movie> allMovies;
-    private ObservableList<Series> allSeries;
-    private ObservableList<Movie> filteredMovies;
-    private ObservableList<Series> filteredSeries;
+    // Cached per-entity cell values shared by all tables
+    private final ViewModelCache viewModels = new ViewModelCache();
+    // Row ids (indexes into DataLoader.movies / DataLoader.seriesList) in the order the tables show:
+    // the default order (by average user rating) or the permutation of the sorted column
+    private RowOrder movieOrder;
+    private RowOrder seriesOrder;
+    // Default order; catalog order until the background sort has built the rating indexes
+    private RowOrder movieDefaultOrder;
+    private RowOrder seriesDefaultOrder;
+    private SortIndex movieRatingIndex;
+    private SortIndex seriesRatingIndex;
+    // Rows whose rating changed while the background sort ran on its copy of the ratings
+    private BitSet moviesChangedWhileSorting;
+    private BitSet seriesChangedWhileSorting;
+    // Sort permutation per column, built the first time the column is sorted and then kept up to date
+    private final Map<TableColumn<Movie, ?>, IntFunction<SortIndex>> movieSortKeys = new HashMap<>();
+    private final Map<TableColumn<Movie, ?>, SortIndex> movieSortIndexes = new HashMap<>();
+    private final Map<TableColumn<Series, ?>, IntFunction<SortIndex>> seriesSortKeys = new HashMap<>();
+    private final Map<TableColumn<Series, ?>, SortIndex> seriesSortIndexes = new HashMap<>();
+    // Blocking the FX thread longer than this is logged as a stall
+    private static final long STALL_THRESHOLD_MS = 100;
+    private final FxMonitor fxMonitor = new FxMonitor(STALL_THRESHOLD_MS);
+    private final ObservableList<FxMonitor.ActionStats> diagnosticsStats = FXCollections.observableArrayList();
+    // Catalog changes are applied to indexes, rankings and views once per frame
+    private ChangeCoalescer catalogChanges;
+    // The tables show row-id selections; entities are looked up only for visible rows
+    private RowSelectionList<Movie> filteredMovies;
+    private RowSelectionList<Series> filteredSeries;
 
     // New: ObservableLists for top movies and series
     private ObservableList<Movie> topMovies;
     private ObservableList<Series> topSeries;
 
+    // Per-genre / per-decade rankings view
+    private ObservableList<Movie> rankingMovies;
+    private ObservableList<Series> rankingSeries;
+    private ComboBox<String> rankingGroupComboBox;
+    private ComboBox<String> rankingKeyComboBox;
+    private static final String TRENDING_GROUP = "🔥 Trending τώρα";
+    // Its statistics refresh only while it is selected
+    private Tab diagnosticsTab;
+
     // Search fields for movies
     private TextField movieTitleSearchField;
     private TextField movieActorSearchField;
     private TextField movieDirectorSearchField;
     private Spinner<Double> movieMinImdbSpinner;
     private Spinner<Double> movieMinUserRatingSpinner;
+    private Spinner<Integer> movieMinRatingCountSpinner;
+    private Spinner<Double> movieMinMedianSpinner;
 
     // Search fields for series
     private TextField seriesTitleSearchField;
     private Spinner<Double> seriesMinUserRatingSpinner;
+    private Spinner<Integer> seriesMinRatingCountSpinner;
+    private Spinner<Double> seriesMinMedianSpinner;
 
     // Add Movie form fields
     private TextField addMovieTitleField;
@@ -79,37 +139,32 @@ public class MainApp extends Application {
     private TableView<RatingEntry> ratingsTable;
     private ObservableList<RatingEntry> ratingsData;
     private TextField movieToRateField;
+    private Spinner<Integer> ratingScoreSpinner;
     private TextArea ratingDescriptionArea;
     private User loggedInUser;
 
-    //Get random Id for user login
-    private static Random random = new Random();
-
-    public static int pickRandomNumber() {
-        return random.nextInt(100); // nextInt(100) returns 0-99
-    }
     public MainApp(User user) {
         this.loggedInUser = user;
     }
     @Override
     public void start(Stage primaryStage) {
+        long startTime = System.nanoTime();
         primaryStage.setTitle("Movie & Series Manager");
 
-        // Initialize data collections
-        allMovies = FXCollections.observableArrayList(
-                DataLoader.movies.stream()
-                        .sorted(Comparator.comparingDouble(Movie::getAverageUserRating).reversed())
-                        .collect(Collectors.toList())
-        );
-
-        allSeries = FXCollections.observableArrayList(
-                DataLoader.seriesList.stream()
-                        .sorted(Comparator.comparingDouble(Series::getAverageUserRating).reversed())
-                        .collect(Collectors.toList())
-        );
-
-        filteredMovies = FXCollections.observableArrayList(allMovies);
-        filteredSeries = FXCollections.observableArrayList(allSeries);
+        // Initialize data collections (row ids only, the catalog itself stays in DataLoader).
+        // Tables start in catalog order; the sort by user rating runs in the background.
+        movieDefaultOrder = RowOrder.natural(DataLoader.movies.size());
+        seriesDefaultOrder = RowOrder.natural(DataLoader.seriesList.size());
+        movieOrder = movieDefaultOrder;
+        seriesOrder = seriesDefaultOrder;
+
+        fxMonitor.start();
+        catalogChanges = new ChangeCoalescer(batch -> fxMonitor.time("applyCatalogChanges", () -> applyCatalogChanges(batch)));
+        subscribeViews();
+        filteredMovies = new RowSelectionList<>(DataLoader.movies, row -> movieOrder.rank(row));
+        filteredMovies.setRows(movieOrder.stream().toArray());
+        filteredSeries = new RowSelectionList<>(DataLoader.seriesList, row -> seriesOrder.rank(row));
+        filteredSeries.setRows(seriesOrder.stream().toArray());
 
         // New: Initialize top content lists and populate them
         topMovies = FXCollections.observableArrayList();
@@ -118,22 +173,304 @@ public class MainApp extends Application {
 
         TabPane tabPane = new TabPane();
 
-        // Tabs
+        // Tabs: only the first (visible) tab is built now, the rest on first selection
         Tab movieTab = new Tab("🎬 Ταινίες", createMovieTab());
-        Tab seriesTab = new Tab("📺 Σειρές", createSeriesTab());
-        Tab ratingsTab = new Tab("⭐ Αξιολογήσεις", createRatingsTab());
-        Tab addMovieTab = new Tab("➕ Προσθήκη Ταινίας", createAddMovieTab());
-        Tab addSeriesTab = new Tab("➕ Προσθήκη Σειράς", createAddSeriesTab());
+        Tab seriesTab = createLazyTab("📺 Σειρές", this::createSeriesTab);
+        Tab ratingsTab = createLazyTab("⭐ Αξιολογήσεις", this::createRatingsTab);
+        Tab addMovieTab = createLazyTab("➕ Προσθήκη Ταινίας", this::createAddMovieTab);
+        Tab addSeriesTab = createLazyTab("➕ Προσθήκη Σειράς", this::createAddSeriesTab);
         // New: Top content tab
-        Tab topContentTab = new Tab("🏆 Top Ταινίες & Σειρές", createTopContentTab());
+        Tab topContentTab = createLazyTab("🏆 Top Ταινίες & Σειρές", this::createTopContentTab);
+        Tab rankingsTab = createLazyTab("📊 Κατατάξεις", this::createRankingsTab);
+        diagnosticsTab = createLazyTab("🩺 Διαγνωστικά", this::createDiagnosticsTab);
+        // Rankings are materialized, so refreshing on every selection only copies the top entries
+        rankingsTab.setOnSelectionChanged(e -> {
+            // On first selection the tab isn't built yet; building it fills the rankings
+            if (rankingsTab.isSelected() && rankingGroupComboBox != null) {
+                refreshRankingKeys();
+            }
+        });
 
 
-        tabPane.getTabs().addAll(movieTab, seriesTab, ratingsTab, addMovieTab, addSeriesTab, topContentTab);
+        tabPane.getTabs().addAll(movieTab, seriesTab, ratingsTab, addMovieTab, addSeriesTab, topContentTab, rankingsTab, diagnosticsTab);
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
         Scene scene = new Scene(tabPane, 1200, 700);
+        fxMonitor.monitor(scene);
+        // Time to first frame: from start() until the first layout pass of the window
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                System.out.printf("[INFO] Time to first frame: %.1f ms (%d movies, %d series)%n",
+                        (System.nanoTime() - startTime) / 1_000_000.0, DataLoader.movies.size(), DataLoader.seriesList.size());
+            }
+        });
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Fold the edit log back into the data files once it has grown; the edits themselves are already durable.
+        // Only the snapshot is taken on the FX thread, the files are written in the background
+        Timeline compaction = new Timeline(new KeyFrame(Duration.minutes(1),
+                e -> fxMonitor.time("compactCatalog", CatalogJournal::compactIfNeededInBackground)));
+        compaction.setCycleCount(Animation.INDEFINITE);
+        compaction.play();
+        primaryStage.setOnHidden(e -> {
+            compaction.stop();
+            CatalogEvents.close(); // Lets the subscribers (the journal above all) handle the last edits
+            CatalogJournal.close(); // Writes edits still queued
+            RatingHistory.close();
+            DataLoader.closeCatalogStore();
+        });
+
+        sortCatalogInBackground();
+    }
+
+    /**
+     * Creates a tab whose content is built the first time the tab is selected.
+     * @param title The tab title.
+     * @param contentBuilder Builds the tab content.
+     */
+    private Tab createLazyTab(String title, Supplier<Node> contentBuilder) {
+        Tab tab = new Tab(title);
+        tab.selectedProperty().addListener((obs, wasSelected, isSelected) -> {
+            if (isSelected && tab.getContent() == null) {
+                long buildStart = System.nanoTime();
+                fxMonitor.time("Build tab " + title, () -> tab.setContent(contentBuilder.get()));
+                System.out.printf("[INFO] Built tab '%s' in %.1f ms%n", title, (System.nanoTime() - buildStart) / 1_000_000.0);
+            }
+        });
+        return tab;
+    }
+
+    /**
+     * Sorts movies and series by average user rating off the FX thread and then
+     * shows the current results in the new order. The ratings are read here, on the FX thread;
+     * the sort thread only sees that copy, never the model.
+     */
+    private void sortCatalogInBackground() {
+        int movieCount = DataLoader.movies.size();
+        int seriesCount = DataLoader.seriesList.size();
+        // Negated so that ascending order is best first, ties in catalog order
+        IntToDoubleFunction movieKey = row -> -DataLoader.movies.get(row).getAverageUserRating();
+        IntToDoubleFunction seriesKey = row -> -DataLoader.seriesList.get(row).getAverageUserRating();
+        double[] movieKeys = new double[movieCount];
+        for (int row = 0; row < movieCount; row++) {
+            movieKeys[row] = movieKey.applyAsDouble(row);
+        }
+        double[] seriesKeys = new double[seriesCount];
+        for (int row = 0; row < seriesCount; row++) {
+            seriesKeys[row] = seriesKey.applyAsDouble(row);
+        }
+        moviesChangedWhileSorting = new BitSet();
+        seriesChangedWhileSorting = new BitSet();
+        javafx.concurrent.Task<SortIndex[]> task = new javafx.concurrent.Task<SortIndex[]>() {
+            @Override
+            protected SortIndex[] call() {
+                return new SortIndex[] {SortIndex.byNumber(movieKeys, movieKey), SortIndex.byNumber(seriesKeys, seriesKey)};
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            movieRatingIndex = task.getValue()[0];
+            seriesRatingIndex = task.getValue()[1];
+            // Titles whose rating changed after the copy, then titles added while sorting
+            moviesChangedWhileSorting.stream().filter(row -> row < movieCount).forEach(movieRatingIndex::update);
+            seriesChangedWhileSorting.stream().filter(row -> row < seriesCount).forEach(seriesRatingIndex::update);
+            moviesChangedWhileSorting = null;
+            seriesChangedWhileSorting = null;
+            for (int row = movieCount; row < DataLoader.movies.size(); row++) {
+                movieRatingIndex.insert(row);
+            }
+            for (int row = seriesCount; row < DataLoader.seriesList.size(); row++) {
+                seriesRatingIndex.insert(row);
+            }
+            movieDefaultOrder = movieRatingIndex.ascending();
+            seriesDefaultOrder = seriesRatingIndex.ascending();
+            applyMovieSortOrder();
+            applySeriesSortOrder();
+        });
+        task.setOnFailed(e -> System.err.println("[ERROR] Could not sort the catalog: " + task.getException()));
+
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Picks the permutation for the table's primary sort column, building its index on first use.
+     * Without a sort column (or for a column without a sort key) the default order is used.
+     */
+    private static <T> RowOrder sortOrderFor(TableView<T> table, Map<TableColumn<T, ?>, IntFunction<SortIndex>> sortKeys,
+                                             Map<TableColumn<T, ?>, SortIndex> sortIndexes, int catalogSize, RowOrder defaultOrder) {
+        if (table.getSortOrder().isEmpty()) {
+            return defaultOrder;
+        }
+        TableColumn<T, ?> column = table.getSortOrder().get(0); // Only the primary column is used
+        IntFunction<SortIndex> sortKey = sortKeys.get(column);
+        if (sortKey == null) {
+            return defaultOrder;
+        }
+        SortIndex index = sortIndexes.computeIfAbsent(column, c -> sortKey.apply(catalogSize));
+        return column.getSortType() == TableColumn.SortType.ASCENDING ? index.ascending() : index.descending();
+    }
+
+    // Re-reads the current movie results in the order of the sorted column. O(n), no comparisons.
+    private void applyMovieSortOrder() {
+        movieOrder = sortOrderFor(movieTable, movieSortKeys, movieSortIndexes, DataLoader.movies.size(), movieDefaultOrder);
+        BitSet selected = new BitSet(DataLoader.movies.size());
+        for (int i = 0; i < filteredMovies.size(); i++) {
+            selected.set(filteredMovies.getRow(i));
+        }
+        filteredMovies.setRows(movieOrder.stream().filter(selected::get).toArray());
+    }
+
+    private void applySeriesSortOrder() {
+        if (seriesTable == null) {
+            performSeriesSearch(); // Series tab not built yet, so there is no sort column
+            return;
+        }
+        seriesOrder = sortOrderFor(seriesTable, seriesSortKeys, seriesSortIndexes, DataLoader.seriesList.size(), seriesDefaultOrder);
+        BitSet selected = new BitSet(DataLoader.seriesList.size());
+        for (int i = 0; i < filteredSeries.size(); i++) {
+            selected.set(filteredSeries.getRow(i));
+        }
+        filteredSeries.setRows(seriesOrder.stream().filter(selected::get).toArray());
+    }
+
+    /**
+     * The views follow the catalog through its event stream (see CatalogEvents). Events arrive on
+     * the views' event thread and are gathered per frame by the ChangeCoalescer; the rankings
+     * report separately once they include a change.
+     */
+    private void subscribeViews() {
+        CatalogEvents.subscribe("views", new CatalogListener() {
+            @Override
+            public void movieAdded(CatalogEvent.MovieAdded event) {
+                catalogChanges.movieAdded(DataLoader.movieRow(event.getMovie()));
+            }
+
+            @Override
+            public void seriesAdded(CatalogEvent.SeriesAdded event) {
+                catalogChanges.seriesAdded(DataLoader.seriesRow(event.getSeries()));
+            }
+
+            @Override
+            public void ratingChanged(CatalogEvent.RatingChanged event) {
+                if (event.isMovie()) {
+                    catalogChanges.movieChanged(DataLoader.movieRow(event.getMovie()));
+                } else {
+                    catalogChanges.seriesChanged(DataLoader.seriesRow(event.getSeries()));
+                }
+            }
+
+            @Override
+            public void seasonsChanged(CatalogEvent.SeasonsChanged event) {
+                catalogChanges.seriesChanged(DataLoader.seriesRow(event.getSeries()));
+            }
+        });
+        Rankings.addUpdateListener(catalogChanges::rankingsChanged);
+    }
+
+    /**
+     * Applies the catalog changes of one frame: re-positions each changed row once,
+     * refreshes its cells, and then updates every affected view once.
+     * @param batch The rows added or changed since the last frame.
+     */
+    private void applyCatalogChanges(ChangeCoalescer.Batch batch) {
+        batch.getAddedMovies().stream().forEach(this::movieRowAdded);
+        batch.getChangedMovies().stream().forEach(this::movieRowChanged);
+        IntStream.concat(batch.getAddedMovies().stream(), batch.getChangedMovies().stream())
+                .forEach(row -> viewModels.refresh(DataLoader.movies.get(row))); // The bound cells refresh themselves
+
+        batch.getAddedSeries().stream().forEach(this::seriesRowAdded);
+        batch.getChangedSeries().stream().forEach(this::seriesRowChanged);
+        IntStream.concat(batch.getAddedSeries().stream(), batch.getChangedSeries().stream())
+                .forEach(row -> viewModels.refresh(DataLoader.seriesList.get(row)));
+
+        if (batch.hasMovieChanges()) {
+            performMovieSearch();
+        }
+        if (batch.hasSeriesChanges()) {
+            performSeriesSearch();
+        }
+        if (batch.hasRankingChanges()) {
+            populateTopContent();
+            if (rankingGroupComboBox != null) {
+                refreshRankingKeys();
+            }
+        }
+    }
+
+    // Places a new catalog row in the default order and every built column index
+    private void movieRowAdded(int row) {
+        if (movieRatingIndex != null) {
+            movieRatingIndex.insert(row);
+        } else {
+            movieDefaultOrder.append(row); // Still in catalog order
+        }
+        movieSortIndexes.values().forEach(index -> index.insert(row));
+    }
+
+    private void seriesRowAdded(int row) {
+        if (seriesRatingIndex != null) {
+            seriesRatingIndex.insert(row);
+        } else {
+            seriesDefaultOrder.append(row);
+        }
+        seriesSortIndexes.values().forEach(index -> index.insert(row));
+    }
+
+    // Re-positions a movie whose values changed in every built index
+    private void movieRowChanged(int row) {
+        if (movieRatingIndex != null) {
+            movieRatingIndex.update(row);
+        } else if (moviesChangedWhileSorting != null) {
+            moviesChangedWhileSorting.set(row);
+        }
+        movieSortIndexes.values().forEach(index -> index.update(row));
+    }
+
+    private void seriesRowChanged(int row) {
+        if (seriesRatingIndex != null) {
+            seriesRatingIndex.update(row);
+        } else if (seriesChangedWhileSorting != null) {
+            seriesChangedWhileSorting.set(row);
+        }
+        seriesSortIndexes.values().forEach(index -> index.update(row));
+    }
+
+    private static <T> IntFunction<SortIndex> textSortKey(List<T> catalog, Function<T, String> text) {
+        return size -> SortIndex.byText(size, row -> text.apply(catalog.get(row)));
+    }
+
+    private static <T> IntFunction<SortIndex> numberSortKey(List<T> catalog, ToDoubleFunction<T> value) {
+        return size -> SortIndex.byNumber(size, row -> value.applyAsDouble(catalog.get(row)));
+    }
+
+    /**
+     * Brings a small list in line with an updated version, touching only the part that differs
+     * (common head and tail are kept), so the table keeps its scroll position and selection.
+     */
+    private static <T> void applyChanges(ObservableList<T> target, List<T> updated) {
+        int common = Math.min(target.size(), updated.size());
+        int prefix = 0;
+        while (prefix < common && target.get(prefix) == updated.get(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < common - prefix
+                && target.get(target.size() - 1 - suffix) == updated.get(updated.size() - 1 - suffix)) {
+            suffix++;
+        }
+        int targetEnd = target.size() - suffix;
+        int updatedEnd = updated.size() - suffix;
+        if (prefix < targetEnd) {
+            target.remove(prefix, targetEnd);
+        }
+        if (prefix < updatedEnd) {
+            target.addAll(prefix, updated.subList(prefix, updatedEnd));
+        }
     }
 
     private VBox createMovieTab() {
@@ -149,40 +486,65 @@ public class MainApp extends Application {
 
         TableColumn<Movie, String> titleCol = new TableColumn<>("Τίτλος");
         titleCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getTitle()));
+                viewModels.of(cellData.getValue()).titleProperty());
         titleCol.setPrefWidth(200);
 
         TableColumn<Movie, String> directorCol = new TableColumn<>("Σκηνοθέτης");
         directorCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getDirector().getFullName()));
+                viewModels.of(cellData.getValue()).directorProperty());
         directorCol.setPrefWidth(150);
 
         TableColumn<Movie, String> actorCol = new TableColumn<>("Πρωταγωνιστής");
         actorCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getLeadActor().getFullName()));
+                viewModels.of(cellData.getValue()).leadActorProperty());
         actorCol.setPrefWidth(150);
 
         TableColumn<Movie, Number> imdbCol = new TableColumn<>("IMDb");
         imdbCol.setCellValueFactory(cellData ->
-                new SimpleDoubleProperty(cellData.getValue().getImdbRating()));
+                viewModels.of(cellData.getValue()).imdbRatingProperty());
         imdbCol.setPrefWidth(80);
 
         TableColumn<Movie, Number> avgUserRatingCol = new TableColumn<>("Μ.Ο. Χρηστών");
         avgUserRatingCol.setCellValueFactory(cellData ->
-                new SimpleDoubleProperty(cellData.getValue().getAverageUserRating()));
+                viewModels.of(cellData.getValue()).averageUserRatingProperty());
         avgUserRatingCol.setPrefWidth(100);
 
+        TableColumn<Movie, Number> medianCol = new TableColumn<>("Διάμεσος");
+        medianCol.setCellValueFactory(cellData ->
+                viewModels.of(cellData.getValue()).medianUserRatingProperty());
+        medianCol.setPrefWidth(80);
+
+        TableColumn<Movie, Number> ratingCountCol = new TableColumn<>("Αξιολογήσεις");
+        ratingCountCol.setCellValueFactory(cellData ->
+                viewModels.of(cellData.getValue()).ratingCountProperty());
+        ratingCountCol.setPrefWidth(90);
+
         TableColumn<Movie, String> genreCol = new TableColumn<>("Είδος");
         genreCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getGenre()));
+                viewModels.of(cellData.getValue()).genreProperty());
         genreCol.setPrefWidth(100);
 
         TableColumn<Movie, Number> yearCol = new TableColumn<>("Έτος");
         yearCol.setCellValueFactory(cellData ->
-                new SimpleDoubleProperty(cellData.getValue().getYear()));
+                viewModels.of(cellData.getValue()).yearProperty());
         yearCol.setPrefWidth(80);
 
-        movieTable.getColumns().addAll(titleCol, directorCol, actorCol, imdbCol, avgUserRatingCol, genreCol, yearCol);
+        movieTable.getColumns().addAll(titleCol, directorCol, actorCol, imdbCol, avgUserRatingCol, medianCol, ratingCountCol, genreCol, yearCol);
+
+        // Header clicks read precomputed permutations instead of sorting the items
+        movieSortKeys.put(titleCol, textSortKey(DataLoader.movies, Movie::getTitle));
+        movieSortKeys.put(directorCol, textSortKey(DataLoader.movies, movie -> movie.getDirector().getFullName()));
+        movieSortKeys.put(actorCol, textSortKey(DataLoader.movies, movie -> movie.getLeadActor().getFullName()));
+        movieSortKeys.put(imdbCol, numberSortKey(DataLoader.movies, Movie::getImdbRating));
+        movieSortKeys.put(avgUserRatingCol, numberSortKey(DataLoader.movies, Movie::getAverageUserRating));
+        movieSortKeys.put(medianCol, numberSortKey(DataLoader.movies, movie -> movie.getRatingHistogram().getMedian()));
+        movieSortKeys.put(ratingCountCol, numberSortKey(DataLoader.movies, movie -> movie.getRatingHistogram().getCount()));
+        movieSortKeys.put(genreCol, textSortKey(DataLoader.movies, Movie::getGenre));
+        movieSortKeys.put(yearCol, numberSortKey(DataLoader.movies, Movie::getYear));
+        movieTable.setSortPolicy(table -> {
+            fxMonitor.time("applyMovieSortOrder", this::applyMovieSortOrder);
+            return true;
+        });
         movieTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
         mainBox.getChildren().addAll(searchPanel, new Separator(), movieTable);
@@ -206,18 +568,18 @@ public class MainApp extends Application {
 
         TableColumn<Series, String> titleCol = new TableColumn<>("Τίτλος");
         titleCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getTitle()));
+                viewModels.of(cellData.getValue()).titleProperty());
         titleCol.setPrefWidth(200);
 
         TableColumn<Series, String> genreCol = new TableColumn<>("Είδος");
         genreCol.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getGenre()));
+                viewModels.of(cellData.getValue()).genreProperty());
         genreCol.setPrefWidth(100);
 
         // Modified: Make seasons column editable
         TableColumn<Series, Integer> seasonsCol = new TableColumn<>("Σεζόν");
         seasonsCol.setCellValueFactory(cellData ->
-                new SimpleIntegerProperty(cellData.getValue().getSeasons().size()).asObject());
+                viewModels.of(cellData.getValue()).seasonCountProperty());
         seasonsCol.setPrefWidth(80);
         seasonsCol.setEditable(true); // Enable editing for this column
         seasonsCol.setCellFactory(TextFieldTableCell.forTableColumn(new IntegerStringConverter())); // Use TextFieldTableCell for integer input
@@ -243,15 +605,12 @@ public class MainApp extends Application {
                 // Revert to the old value in case of an error
                 seriesTable.refresh();
             }
-            populateTopContent(); // New: Update top content after series seasons are updated
         });
 
         // NEW: Create a new column for Total Episodes
         TableColumn<Series, Integer> totalEpisodesCol = new TableColumn<>("Συνολικά Επεισόδια");
-        totalEpisodesCol.setCellValueFactory(cellData -> {
-            // It should calculate the sum of episodes across all seasons.
-            return new SimpleIntegerProperty(cellData.getValue().getTotalEpisodes()).asObject();
-        });
+        // The sum of episodes across all seasons, kept up to date by the view model
+        totalEpisodesCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).totalEpisodesProperty());
         totalEpisodesCol.setPrefWidth(120); // Adjust width as needed
 
         // Make Total Episodes column editable
@@ -269,17 +628,39 @@ public class MainApp extends Application {
             // logic to update individual season episodes or a dedicated field.
             showAlert("Προσοχή", "Το πεδίο 'Συνολικά Επεισόδια' είναι υπολογιζόμενο. Η αλλαγή δεν θα αποθηκευτεί μόνιμα εκτός εάν το μοντέλο δεδομένων υποστηρίζει την άμεση επεξεργασία του.", Alert.AlertType.WARNING);
             seriesTable.refresh(); // Refresh to revert to the calculated value if it's derived
-            populateTopContent(); // Update top content
         });
 
 
         TableColumn<Series, Number> avgUserRatingCol = new TableColumn<>("Μ.Ο. Χρηστών");
         avgUserRatingCol.setCellValueFactory(cellData ->
-                new SimpleDoubleProperty(cellData.getValue().getAverageUserRating()));
+                viewModels.of(cellData.getValue()).averageUserRatingProperty());
         avgUserRatingCol.setPrefWidth(100);
 
+        TableColumn<Series, Number> medianCol = new TableColumn<>("Διάμεσος");
+        medianCol.setCellValueFactory(cellData ->
+                viewModels.of(cellData.getValue()).medianUserRatingProperty());
+        medianCol.setPrefWidth(80);
+
+        TableColumn<Series, Number> ratingCountCol = new TableColumn<>("Αξιολογήσεις");
+        ratingCountCol.setCellValueFactory(cellData ->
+                viewModels.of(cellData.getValue()).ratingCountProperty());
+        ratingCountCol.setPrefWidth(90);
+
         // Add all columns including the new totalEpisodesCol
-        seriesTable.getColumns().addAll(titleCol, genreCol, seasonsCol, totalEpisodesCol, avgUserRatingCol);
+        seriesTable.getColumns().addAll(titleCol, genreCol, seasonsCol, totalEpisodesCol, avgUserRatingCol, medianCol, ratingCountCol);
+
+        // Header clicks read precomputed permutations instead of sorting the items
+        seriesSortKeys.put(titleCol, textSortKey(DataLoader.seriesList, Series::getTitle));
+        seriesSortKeys.put(genreCol, textSortKey(DataLoader.seriesList, Series::getGenre));
+        seriesSortKeys.put(seasonsCol, numberSortKey(DataLoader.seriesList, Series::getSeasonCount));
+        seriesSortKeys.put(totalEpisodesCol, numberSortKey(DataLoader.seriesList, Series::getTotalEpisodes));
+        seriesSortKeys.put(avgUserRatingCol, numberSortKey(DataLoader.seriesList, Series::getAverageUserRating));
+        seriesSortKeys.put(medianCol, numberSortKey(DataLoader.seriesList, series -> series.getRatingHistogram().getMedian()));
+        seriesSortKeys.put(ratingCountCol, numberSortKey(DataLoader.seriesList, series -> series.getRatingHistogram().getCount()));
+        seriesTable.setSortPolicy(table -> {
+            fxMonitor.time("applySeriesSortOrder", this::applySeriesSortOrder);
+            return true;
+        });
         seriesTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
         mainBox.getChildren().addAll(searchPanel, new Separator(), seriesTable);
@@ -316,9 +697,8 @@ public class MainApp extends Application {
         }
         // No action needed if newSeasonCount == currentSeasonCount
 
-        // Refresh the table to reflect changes (especially if the underlying data isn't directly observable)
-        seriesTable.refresh();
-        performSeriesSearch(); // Re-apply filters and sort if needed
+        // Journal, rankings (the decade follows the first season's year) and views follow through the event stream
+        DataLoader.seasonsChanged(series);
     }
 
 
@@ -448,7 +828,7 @@ public class MainApp extends Application {
         Button addButton = new Button("Προσθήκη Ταινίας");
         addButton.setStyle("-fx-background-color: #28a745; -fx-text-fill: white; -fx-font-size: 14px; -fx-padding: 10 20;");
         addButton.setPrefWidth(150);
-        addButton.setOnAction(e -> addNewMovie());
+        addButton.setOnAction(e -> fxMonitor.time("addNewMovie", this::addNewMovie));
 
         Button clearButton = new Button("Καθαρισμός");
         clearButton.setStyle("-fx-background-color: #6c757d; -fx-text-fill: white; -fx-font-size: 14px; -fx-padding: 10 20;");
@@ -500,6 +880,15 @@ public class MainApp extends Application {
         movieToRateField.setPromptText("Εισάγετε τον τίτλο της ταινίας...");
         movieRow.getChildren().addAll(movieLabel, movieToRateField);
 
+        // Score
+        HBox scoreRow = new HBox(10);
+
+        Label scoreLabel = new Label("Βαθμολογία:");
+        scoreLabel.setPrefWidth(100);
+        ratingScoreSpinner = new Spinner<>(1, 10, 5, 1);
+        ratingScoreSpinner.setEditable(true);
+        scoreRow.getChildren().addAll(scoreLabel, ratingScoreSpinner);
+
         // Rating description
         HBox descRow = new HBox(10);
 
@@ -513,9 +902,9 @@ public class MainApp extends Application {
         // Submit button
         Button submitButton = new Button("Υποβολή Αξιολόγησης");
         submitButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white;");
-        submitButton.setOnAction(e -> submitRating());
+        submitButton.setOnAction(e -> fxMonitor.time("submitRating", this::submitRating));
 
-        ratingForm.getChildren().addAll(titleLabel, movieRow, descRow, submitButton);
+        ratingForm.getChildren().addAll(titleLabel, movieRow, scoreRow, descRow, submitButton);
 
         // Ratings table
         ratingsTable = new TableView<>();
@@ -530,11 +919,15 @@ public class MainApp extends Application {
         userCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getUserInfo()));
         userCol.setPrefWidth(150);
 
+        TableColumn<RatingEntry, String> scoreCol = new TableColumn<>("Βαθμολογία");
+        scoreCol.setCellValueFactory(cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().getRating())));
+        scoreCol.setPrefWidth(90);
+
         TableColumn<RatingEntry, String> descCol = new TableColumn<>("Περιγραφή");
         descCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDescription()));
         descCol.setPrefWidth(300);
 
-        ratingsTable.getColumns().addAll(movieCol, userCol, descCol);
+        ratingsTable.getColumns().addAll(movieCol, userCol, scoreCol, descCol);
         ratingsTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
         mainBox.getChildren().addAll(userInfoPanel, ratingForm, new Separator(), ratingsTable);
@@ -545,11 +938,13 @@ public class MainApp extends Application {
     public static class RatingEntry {
         private String movieTitle;
         private String userInfo;
+        private int rating;
         private String description;
 
-        public RatingEntry(String movieTitle, String userInfo, String description) {
+        public RatingEntry(String movieTitle, String userInfo, int rating, String description) {
             this.movieTitle = movieTitle;
             this.userInfo = userInfo;
+            this.rating = rating;
             this.description = description;
         }
 
@@ -561,6 +956,10 @@ public class MainApp extends Application {
             return userInfo;
         }
 
+        public int getRating() {
+            return rating;
+        }
+
         public String getDescription() {
             return description;
         }
@@ -582,34 +981,28 @@ public class MainApp extends Application {
         }
 
         // Check if movie exists
-        Movie targetMovie = allMovies.stream()
-                .filter(movie -> movie.getTitle().equalsIgnoreCase(movieTitle))
-                .findFirst()
-                .orElse(null);
+        Movie target = DataLoader.findMovieByTitle(movieTitle);
 
-        if (targetMovie == null) {
+        if (target == null) {
             showAlert("Σφάλμα", "Η ταινία δεν βρέθηκε στη βάση δεδομένων.", Alert.AlertType.ERROR);
             return;
         }
 
+        // Records the score; rankings, journal and the views follow through the event stream
+        int score = ratingScoreSpinner.getValue();
+        DataLoader.addMovieRating(target, loggedInUser.getId(), score);
+
         // Create and add the rating entry
         String userInfo = String.format("%s %s (ID: %d)",
                 loggedInUser.getFirstName(), loggedInUser.getLastName(), loggedInUser.getId());
-        RatingEntry newEntry = new RatingEntry(movieTitle, userInfo, description);
+        RatingEntry newEntry = new RatingEntry(movieTitle, userInfo, score, description);
         ratingsData.add(newEntry);
 
-        // For simplicity, let's assume submitting a rating also updates the movie's user rating.
-        // In a real app, this would involve averaging, but for now, we'll just trigger a refresh
-        // that affects the 'top content' display.
-        // To actually update the movie's average user rating, you would need to add logic here
-        // For example: targetMovie.addUserRating(someRatingValue);
-
         // Clear form
         movieToRateField.clear();
         ratingDescriptionArea.clear();
 
         showAlert("Επιτυχία", "Η αξιολόγηση υποβλήθηκε επιτυχώς!", Alert.AlertType.INFORMATION);
-        populateTopContent(); // New: Update top content after rating submission
     }
 
     private VBox createAddSeriesTab() {
@@ -726,7 +1119,7 @@ public class MainApp extends Application {
         Button addButton = new Button("Προσθήκη Σειράς");
         addButton.setStyle("-fx-background-color: #28a745; -fx-text-fill: white; -fx-font-size: 14px; -fx-padding: 10 20;");
         addButton.setPrefWidth(150);
-        addButton.setOnAction(e -> addNewSeries());
+        addButton.setOnAction(e -> fxMonitor.time("addNewSeries", this::addNewSeries));
 
         Button clearButton = new Button("Καθαρισμός");
         clearButton.setStyle("-fx-background-color: #6c757d; -fx-text-fill: white; -fx-font-size: 14px; -fx-padding: 10 20;");
@@ -793,16 +1186,8 @@ public class MainApp extends Application {
                 showAlert("Επιτυχία", "Η ταινία προστέθηκε επιτυχώς!", Alert.AlertType.INFORMATION);
             }
 
-            // Add to collections
-            DataLoader.movies.add(newMovie);
-            allMovies.add(newMovie);
-
-            // Sort movies by average user rating (new movie will have 0.0 initially)
-            allMovies.sort(Comparator.comparingDouble(Movie::getAverageUserRating).reversed());
-
-            // Refresh filtered movies and perform search to update display
-            performMovieSearch();
-            populateTopContent(); // New: Update top content after adding a new movie
+            // Add to collections; store, journal, rankings and views follow through the event stream
+            DataLoader.addNewMovie(newMovie);
 
             // Clear form
             clearAddMovieForm();
@@ -861,16 +1246,8 @@ public class MainApp extends Application {
 
             showAlert("Επιτυχία", "Η σειρά προστέθηκε επιτυχώς με " + numberOfSeasons + " σεζόν!", Alert.AlertType.INFORMATION);
 
-            // Add to collections
-            DataLoader.seriesList.add(newSeries);
-            allSeries.add(newSeries);
-
-            // Sort series by average user rating (new series will have 0.0 initially)
-            allSeries.sort(Comparator.comparingDouble(Series::getAverageUserRating).reversed());
-
-            // Refresh filtered series and perform search to update display
-            performSeriesSearch();
-            populateTopContent(); // New: Update top content after adding a new series
+            // Add to collections; journal, rankings and views follow through the event stream
+            DataLoader.addNewSeries(newSeries);
 
             // Clear form
             clearAddSeriesForm();
@@ -963,11 +1340,28 @@ public class MainApp extends Application {
         movieMinUserRatingSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performMovieSearch());
         userRatingBox.getChildren().addAll(userRatingLabel, movieMinUserRatingSpinner);
 
+        // Answered from each movie's rating histogram
+        VBox ratingCountBox = new VBox(5);
+        Label ratingCountLabel = new Label("Ελάχιστες Αξιολογήσεις:");
+        movieMinRatingCountSpinner = new Spinner<>(0, Integer.MAX_VALUE, 0, 1);
+        movieMinRatingCountSpinner.setPrefWidth(120);
+        movieMinRatingCountSpinner.setEditable(true);
+        movieMinRatingCountSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performMovieSearch());
+        ratingCountBox.getChildren().addAll(ratingCountLabel, movieMinRatingCountSpinner);
+
+        VBox medianBox = new VBox(5);
+        Label medianLabel = new Label("Ελάχιστη Διάμεσος:");
+        movieMinMedianSpinner = new Spinner<>(0.0, 10.0, 0.0, 0.5);
+        movieMinMedianSpinner.setPrefWidth(120);
+        movieMinMedianSpinner.setEditable(true);
+        movieMinMedianSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performMovieSearch());
+        medianBox.getChildren().addAll(medianLabel, movieMinMedianSpinner);
+
         Button clearButton = new Button("Καθαρισμός Φίλτρων");
         clearButton.setStyle("-fx-background-color: #6c757d; -fx-text-fill: white;");
         clearButton.setOnAction(e -> clearMovieFilters());
 
-        thirdRow.getChildren().addAll(userRatingBox, clearButton);
+        thirdRow.getChildren().addAll(userRatingBox, ratingCountBox, medianBox, clearButton);
 
         searchPanel.getChildren().addAll(searchLabel, firstRow, secondRow, thirdRow);
         return searchPanel;
@@ -1000,50 +1394,90 @@ public class MainApp extends Application {
         seriesMinUserRatingSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performSeriesSearch());
         userRatingBox.getChildren().addAll(userRatingLabel, seriesMinUserRatingSpinner);
 
+        // Answered from each series' rating histogram
+        VBox ratingCountBox = new VBox(5);
+        Label ratingCountLabel = new Label("Ελάχιστες Αξιολογήσεις:");
+        seriesMinRatingCountSpinner = new Spinner<>(0, Integer.MAX_VALUE, 0, 1);
+        seriesMinRatingCountSpinner.setPrefWidth(120);
+        seriesMinRatingCountSpinner.setEditable(true);
+        seriesMinRatingCountSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performSeriesSearch());
+        ratingCountBox.getChildren().addAll(ratingCountLabel, seriesMinRatingCountSpinner);
+
+        VBox medianBox = new VBox(5);
+        Label medianLabel = new Label("Ελάχιστη Διάμεσος:");
+        seriesMinMedianSpinner = new Spinner<>(0.0, 10.0, 0.0, 0.5);
+        seriesMinMedianSpinner.setPrefWidth(120);
+        seriesMinMedianSpinner.setEditable(true);
+        seriesMinMedianSpinner.valueProperty().addListener((obs, oldVal, newVal) -> performSeriesSearch());
+        medianBox.getChildren().addAll(medianLabel, seriesMinMedianSpinner);
+
         Button clearButton = new Button("Καθαρισμός Φίλτρων");
         clearButton.setStyle("-fx-background-color: #6c757d; -fx-text-fill: white;");
         clearButton.setOnAction(e -> clearSeriesFilters());
 
-        searchRow.getChildren().addAll(titleBox, userRatingBox, clearButton);
+        searchRow.getChildren().addAll(titleBox, userRatingBox, ratingCountBox, medianBox, clearButton);
 
         searchPanel.getChildren().addAll(searchLabel, searchRow);
         return searchPanel;
     }
 
+    // Re-applies the movie filters; measured, as it runs on every keystroke and catalog change
     private void performMovieSearch() {
+        fxMonitor.time("performMovieSearch", this::filterMovies);
+    }
+
+    private void filterMovies() {
         String titleSearch = movieTitleSearchField.getText().toLowerCase().trim();
         String actorSearch = movieActorSearchField.getText().toLowerCase().trim();
         String directorSearch = movieDirectorSearchField.getText().toLowerCase().trim();
         double minImdb = movieMinImdbSpinner.getValue();
         double minUserRating = movieMinUserRatingSpinner.getValue();
-
-        List<Movie> filtered = allMovies.stream()
-                .filter(movie -> titleSearch.isEmpty() ||
-                        movie.getTitle().toLowerCase().contains(titleSearch))
-                .filter(movie -> actorSearch.isEmpty() ||
-                        movie.getLeadActor().getFullName().toLowerCase().contains(actorSearch))
-                .filter(movie -> directorSearch.isEmpty() ||
-                        movie.getDirector().getFullName().toLowerCase().contains(directorSearch))
-                .filter(movie -> movie.getImdbRating() >= minImdb)
-                .filter(movie -> movie.getAverageUserRating() >= minUserRating)
-                .collect(Collectors.toList());
-
-        filteredMovies.clear();
-        filteredMovies.addAll(filtered);
+        int minRatingCount = movieMinRatingCountSpinner.getValue();
+        double minMedian = movieMinMedianSpinner.getValue();
+
+        Predicate<Movie> matches = movie ->
+                (titleSearch.isEmpty() || movie.getTitle().toLowerCase().contains(titleSearch))
+                && (actorSearch.isEmpty() || movie.getLeadActor().getFullName().toLowerCase().contains(actorSearch))
+                && (directorSearch.isEmpty() || movie.getDirector().getFullName().toLowerCase().contains(directorSearch))
+                && movie.getImdbRating() >= minImdb
+                && movie.getAverageUserRating() >= minUserRating
+                && movie.getRatingHistogram().getCount() >= minRatingCount
+                && (minMedian == 0.0 || movie.getRatingHistogram().getMedian() >= minMedian);
+
+        // Read in display order, so the result can be merged against the previous one
+        int[] filtered = movieOrder.stream()
+                .filter(row -> matches.test(DataLoader.movies.get(row)))
+                .toArray();
+
+        filteredMovies.setRows(filtered);
     }
 
     private void performSeriesSearch() {
+        fxMonitor.time("performSeriesSearch", this::filterSeries);
+    }
+
+    private void filterSeries() {
+        if (seriesTitleSearchField == null) {
+            // Series tab not built yet, so there are no filters
+            filteredSeries.setRows(seriesOrder.stream().toArray());
+            return;
+        }
         String titleSearch = seriesTitleSearchField.getText().toLowerCase().trim();
         double minUserRating = seriesMinUserRatingSpinner.getValue();
+        int minRatingCount = seriesMinRatingCountSpinner.getValue();
+        double minMedian = seriesMinMedianSpinner.getValue();
 
-        List<Series> filtered = allSeries.stream()
-                .filter(series -> titleSearch.isEmpty() ||
-                        series.getTitle().toLowerCase().contains(titleSearch))
-                .filter(series -> series.getAverageUserRating() >= minUserRating)
-                .collect(Collectors.toList());
+        Predicate<Series> matches = series ->
+                (titleSearch.isEmpty() || series.getTitle().toLowerCase().contains(titleSearch))
+                && series.getAverageUserRating() >= minUserRating
+                && series.getRatingHistogram().getCount() >= minRatingCount
+                && (minMedian == 0.0 || series.getRatingHistogram().getMedian() >= minMedian);
 
-        filteredSeries.clear();
-        filteredSeries.addAll(filtered);
+        int[] filtered = seriesOrder.stream()
+                .filter(row -> matches.test(DataLoader.seriesList.get(row)))
+                .toArray();
+
+        filteredSeries.setRows(filtered);
     }
 
     private void clearMovieFilters() {
@@ -1052,12 +1486,16 @@ public class MainApp extends Application {
         movieDirectorSearchField.clear();
         movieMinImdbSpinner.getValueFactory().setValue(0.0);
         movieMinUserRatingSpinner.getValueFactory().setValue(0.0);
+        movieMinRatingCountSpinner.getValueFactory().setValue(0);
+        movieMinMedianSpinner.getValueFactory().setValue(0.0);
         performMovieSearch(); // Re-apply search after clearing
     }
 
     private void clearSeriesFilters() {
         seriesTitleSearchField.clear();
         seriesMinUserRatingSpinner.getValueFactory().setValue(0.0);
+        seriesMinRatingCountSpinner.getValueFactory().setValue(0);
+        seriesMinMedianSpinner.getValueFactory().setValue(0.0);
         performSeriesSearch(); // Re-apply search after clearing
     }
 
@@ -1090,11 +1528,11 @@ public class MainApp extends Application {
         topMovieTable.setItems(topMovies); // Bind to the new observable list
 
         TableColumn<Movie, String> movieTitleCol = new TableColumn<>("Τίτλος");
-        movieTitleCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTitle()));
+        movieTitleCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).titleProperty());
         movieTitleCol.setPrefWidth(200);
 
         TableColumn<Movie, Number> movieImdbCol = new TableColumn<>("IMDb");
-        movieImdbCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getImdbRating()));
+        movieImdbCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).imdbRatingProperty());
         movieImdbCol.setPrefWidth(80);
 
         topMovieTable.getColumns().addAll(movieTitleCol, movieImdbCol); // Only title and IMDb
@@ -1113,11 +1551,11 @@ public class MainApp extends Application {
         topSeriesTable.setItems(topSeries); // Bind to the new observable list
 
         TableColumn<Series, String> seriesTitleCol = new TableColumn<>("Τίτλος");
-        seriesTitleCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTitle()));
+        seriesTitleCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).titleProperty());
         seriesTitleCol.setPrefWidth(200);
 
         TableColumn<Series, Number> seriesAvgUserRatingCol = new TableColumn<>("Μ.Ο. Χρηστών");
-        seriesAvgUserRatingCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getAverageUserRating()));
+        seriesAvgUserRatingCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).averageUserRatingProperty());
         seriesAvgUserRatingCol.setPrefWidth(100);
 
 
@@ -1132,22 +1570,192 @@ public class MainApp extends Application {
     }
 
     /**
-     * Populates the topMovies and topSeries lists based on rating criteria (>= 7.5).
+     * Populates the topMovies and topSeries lists with every title that meets the rating criteria (>= 7.5).
+     * The leaderboards in Rankings are kept sorted as entities change, so this only
+     * copies them in order instead of re-filtering and re-sorting the catalog.
      */
     private void populateTopContent() {
-        // Filter movies: ONLY by IMDb rating >= 7.5
-        List<Movie> filteredTopMovies = allMovies.stream()
-                .filter(movie -> movie.getImdbRating() >= 7.5)
-                .sorted(Comparator.comparingDouble(Movie::getImdbRating).reversed()) // Sort by IMDb rating
-                .collect(Collectors.toList());
-        topMovies.setAll(filteredTopMovies);
-
-        // Filter series: Remains by Average User Rating >= 7.5
-        List<Series> filteredTopSeries = allSeries.stream()
-                .filter(series -> series.getAverageUserRating() >= 7.5)
-                .sorted(Comparator.comparingDouble(Series::getAverageUserRating).reversed())
-                .collect(Collectors.toList());
-        topSeries.setAll(filteredTopSeries);
+        fxMonitor.time("populateTopContent", () -> {
+            // Movies: ONLY by IMDb rating >= 7.5
+            applyChanges(topMovies, Rankings.topMovies.all());
+
+            // Series: Remains by Average User Rating >= 7.5
+            applyChanges(topSeries, Rankings.topSeries.all());
+        });
+    }
+
+    /**
+     * Creates the tab with the top 50 movies and series per genre, per decade or by trending score.
+     * @return A VBox containing the UI for the rankings tab.
+     */
+    private VBox createRankingsTab() {
+        VBox mainBox = new VBox(10);
+        mainBox.setPadding(new Insets(10));
+
+        Label titleLabel = new Label("📊 Top " + Rankings.GROUP_LIMIT + " ανά Είδος / Δεκαετία");
+        titleLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 18px; -fx-text-fill: #2c3e50;");
+
+        HBox selectorRow = new HBox(10);
+        selectorRow.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
+        rankingGroupComboBox = new ComboBox<>();
+        rankingGroupComboBox.getItems().addAll("Είδος", "Δεκαετία", TRENDING_GROUP);
+        rankingGroupComboBox.setValue("Είδος");
+        rankingGroupComboBox.setOnAction(e -> fxMonitor.time("refreshRankingKeys", this::refreshRankingKeys));
+        rankingKeyComboBox = new ComboBox<>();
+        rankingKeyComboBox.setPrefWidth(200);
+        rankingKeyComboBox.setOnAction(e -> fxMonitor.time("refreshRankingsView", this::refreshRankingsView));
+        selectorRow.getChildren().addAll(new Label("Κατάταξη ανά:"), rankingGroupComboBox, rankingKeyComboBox);
+
+        rankingMovies = FXCollections.observableArrayList();
+        rankingSeries = FXCollections.observableArrayList();
+
+        TableView<Movie> movieRankingTable = new TableView<>();
+        movieRankingTable.setItems(rankingMovies);
+        TableColumn<Movie, String> movieTitleCol = new TableColumn<>("Τίτλος");
+        movieTitleCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).titleProperty());
+        TableColumn<Movie, Number> movieImdbCol = new TableColumn<>("IMDb");
+        movieImdbCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).imdbRatingProperty());
+        movieRankingTable.getColumns().addAll(movieTitleCol, movieImdbCol);
+        movieRankingTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        TableView<Series> seriesRankingTable = new TableView<>();
+        seriesRankingTable.setItems(rankingSeries);
+        TableColumn<Series, String> seriesTitleCol = new TableColumn<>("Τίτλος");
+        seriesTitleCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).titleProperty());
+        TableColumn<Series, Number> seriesAvgUserRatingCol = new TableColumn<>("Μ.Ο. Χρηστών");
+        seriesAvgUserRatingCol.setCellValueFactory(cellData -> viewModels.of(cellData.getValue()).averageUserRatingProperty());
+        seriesRankingTable.getColumns().addAll(seriesTitleCol, seriesAvgUserRatingCol);
+        seriesRankingTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        Label moviesLabel = new Label("Ταινίες:");
+        moviesLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+        Label seriesLabel = new Label("Σειρές:");
+        seriesLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+
+        mainBox.getChildren().addAll(titleLabel, selectorRow, moviesLabel, movieRankingTable,
+                new Separator(), seriesLabel, seriesRankingTable);
+        VBox.setVgrow(movieRankingTable, Priority.ALWAYS);
+        VBox.setVgrow(seriesRankingTable, Priority.ALWAYS);
+
+        refreshRankingKeys();
+        return mainBox;
+    }
+
+    /**
+     * Creates the tab with the FX thread latency per action, worst first, refreshed every second.
+     * @return A VBox containing the UI for the diagnostics tab.
+     */
+    private VBox createDiagnosticsTab() {
+        VBox mainBox = new VBox(10);
+        mainBox.setPadding(new Insets(10));
+
+        Label titleLabel = new Label("🩺 Καθυστερήσεις νήματος UI");
+        titleLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 18px; -fx-text-fill: #2c3e50;");
+        Label thresholdLabel = new Label("Καθυστέρηση θεωρείται κάθε ενέργεια πάνω από " + STALL_THRESHOLD_MS + " ms.");
+
+        TableView<FxMonitor.ActionStats> statsTable = new TableView<>();
+        statsTable.setItems(diagnosticsStats);
+        TableColumn<FxMonitor.ActionStats, String> actionCol = new TableColumn<>("Ενέργεια");
+        actionCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getAction()));
+        actionCol.setPrefWidth(300);
+        TableColumn<FxMonitor.ActionStats, Number> countCol = new TableColumn<>("Κλήσεις");
+        countCol.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getCount()));
+        TableColumn<FxMonitor.ActionStats, String> p50Col = new TableColumn<>("p50 (ms)");
+        p50Col.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.2f", cellData.getValue().getP50Millis())));
+        TableColumn<FxMonitor.ActionStats, String> p99Col = new TableColumn<>("p99 (ms)");
+        p99Col.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.2f", cellData.getValue().getP99Millis())));
+        TableColumn<FxMonitor.ActionStats, String> maxCol = new TableColumn<>("Μέγιστο (ms)");
+        maxCol.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.2f", cellData.getValue().getMaxMillis())));
+        TableColumn<FxMonitor.ActionStats, Number> stallsCol = new TableColumn<>("Καθυστερήσεις");
+        stallsCol.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getStalls()));
+        statsTable.getColumns().addAll(actionCol, countCol, p50Col, p99Col, maxCol, stallsCol);
+        statsTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        // Memory-bounded mode (see WorkingSet)
+        Label pagingLabel = new Label();
+        pagingLabel.setWrapText(true);
+        Runnable refreshPaging = () -> {
+            WorkingSet workingSet = WorkingSet.getActive();
+            pagingLabel.setText(workingSet == null ? "Σελιδοποίηση καταλόγου: ανενεργή" : "Σελιδοποίηση καταλόγου: " + workingSet.getStats());
+        };
+
+        // The snapshot is a few dozen rows, so replacing it every second is cheap; only while the tab is shown
+        Runnable refresh = () -> {
+            diagnosticsStats.setAll(fxMonitor.getStats());
+            refreshPaging.run();
+        };
+        refresh.run();
+        Timeline refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh.run()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+        refresher.play(); // Built on the tab's first selection
+        diagnosticsTab.selectedProperty().addListener((obs, wasSelected, isSelected) -> {
+            if (isSelected) {
+                refresh.run();
+                refresher.play();
+            } else {
+                refresher.stop();
+            }
+        });
+
+        mainBox.getChildren().addAll(titleLabel, thresholdLabel, statsTable, pagingLabel);
+        VBox.setVgrow(statsTable, Priority.ALWAYS);
+        return mainBox;
+    }
+
+    /**
+     * Fills the key selector with the genres or decades that currently have rankings,
+     * keeping the current selection when it still exists.
+     */
+    private void refreshRankingKeys() {
+        String group = rankingGroupComboBox.getValue();
+        Set<String> keys = new TreeSet<>(Collation.order());
+        rankingKeyComboBox.setDisable(TRENDING_GROUP.equals(group)); // Trending is a single catalog-wide ranking
+        if (TRENDING_GROUP.equals(group)) {
+            rankingKeyComboBox.getItems().clear();
+            refreshRankingsView();
+            return;
+        }
+
+        if ("Είδος".equals(group)) {
+            keys.addAll(Rankings.moviesByGenre.keys());
+            keys.addAll(Rankings.seriesByGenre.keys());
+        } else {
+            Rankings.moviesByDecade.keys().forEach(decade -> keys.add(decade + "s"));
+            Rankings.seriesByDecade.keys().forEach(decade -> keys.add(decade + "s"));
+        }
+
+        String selected = rankingKeyComboBox.getValue();
+        rankingKeyComboBox.getItems().setAll(keys);
+        if (selected == null || !keys.contains(selected)) {
+            selected = keys.isEmpty() ? null : keys.iterator().next();
+        }
+        rankingKeyComboBox.setValue(selected);
+        refreshRankingsView();
+    }
+
+    /**
+     * Copies the selected materialized rankings into the tables. O(GROUP_LIMIT).
+     */
+    private void refreshRankingsView() {
+        if (TRENDING_GROUP.equals(rankingGroupComboBox.getValue())) {
+            applyChanges(rankingMovies, Rankings.trendingMovies.top(Rankings.GROUP_LIMIT));
+            applyChanges(rankingSeries, Rankings.trendingSeries.top(Rankings.GROUP_LIMIT));
+            return;
+        }
+        String key = rankingKeyComboBox.getValue();
+        if (key == null) {
+            rankingMovies.clear();
+            rankingSeries.clear();
+            return;
+        }
+        if ("Είδος".equals(rankingGroupComboBox.getValue())) {
+            applyChanges(rankingMovies, Rankings.moviesByGenre.top(key, Rankings.GROUP_LIMIT));
+            applyChanges(rankingSeries, Rankings.seriesByGenre.top(key, Rankings.GROUP_LIMIT));
+        } else {
+            int decade = Integer.parseInt(key.substring(0, key.length() - 1)); // "1990s" -> 1990
+            applyChanges(rankingMovies, Rankings.moviesByDecade.top(decade, Rankings.GROUP_LIMIT));
+            applyChanges(rankingSeries, Rankings.seriesByDecade.top(decade, Rankings.GROUP_LIMIT));
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,79 @@
+package gui;
+
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import model.Movie;
+
+/**
+ * Table-facing view of a Movie. The properties are created once per movie and only
+ * re-read from the model in refresh(), so rendering a cell allocates nothing and
+ * doesn't recompute names or rating statistics. The view model is the bean of its
+ * properties, so a cell bound to one of them keeps it alive (see ViewModelCache).
+ */
+public class MovieViewModel {
+    private final Movie movie;
+    private final SimpleStringProperty title = new SimpleStringProperty(this, "title");
+    private final SimpleStringProperty director = new SimpleStringProperty(this, "director");
+    private final SimpleStringProperty leadActor = new SimpleStringProperty(this, "leadActor");
+    private final SimpleDoubleProperty imdbRating = new SimpleDoubleProperty(this, "imdbRating");
+    private final SimpleDoubleProperty averageUserRating = new SimpleDoubleProperty(this, "averageUserRating");
+    private final SimpleIntegerProperty medianUserRating = new SimpleIntegerProperty(this, "medianUserRating");
+    private final SimpleIntegerProperty ratingCount = new SimpleIntegerProperty(this, "ratingCount");
+    private final SimpleStringProperty genre = new SimpleStringProperty(this, "genre");
+    private final SimpleIntegerProperty year = new SimpleIntegerProperty(this, "year");
+
+    public MovieViewModel(Movie movie) {
+        this.movie = movie;
+        refresh();
+    }
+
+    // Call after the movie changed; bound cells update themselves
+    public void refresh() {
+        title.set(movie.getTitle());
+        director.set(movie.getDirector().getFullName());
+        leadActor.set(movie.getLeadActor().getFullName());
+        imdbRating.set(movie.getImdbRating());
+        averageUserRating.set(movie.getAverageUserRating());
+        medianUserRating.set(movie.getRatingHistogram().getMedian());
+        ratingCount.set(movie.getRatingHistogram().getCount());
+        genre.set(movie.getGenre());
+        year.set(movie.getYear());
+    }
+
+    public SimpleStringProperty titleProperty() {
+        return title;
+    }
+
+    public SimpleStringProperty directorProperty() {
+        return director;
+    }
+
+    public SimpleStringProperty leadActorProperty() {
+        return leadActor;
+    }
+
+    public SimpleDoubleProperty imdbRatingProperty() {
+        return imdbRating;
+    }
+
+    public SimpleDoubleProperty averageUserRatingProperty() {
+        return averageUserRating;
+    }
+
+    public SimpleIntegerProperty medianUserRatingProperty() {
+        return medianUserRating;
+    }
+
+    public SimpleIntegerProperty ratingCountProperty() {
+        return ratingCount;
+    }
+
+    public SimpleStringProperty genreProperty() {
+        return genre;
+    }
+
+    public SimpleIntegerProperty yearProperty() {
+        return year;
+    }
+}
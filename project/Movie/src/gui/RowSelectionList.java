@@ -0,0 +1,131 @@
+package gui;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Read-only ObservableList view of a selection of catalog rows.
+ * The selection is an int[] of row ids (indexes into the catalog list, e.g. DataLoader.movies);
+ * get(i) looks the entity up only when the TableView asks for a visible row,
+ * so no copy of the catalog is kept per view.
+ * Replacing the selection reports only the rows that actually changed: when both the old
+ * and the new selection follow the same RowOrder they are diffed with a single merge.
+ * @param <T> The entity type (Movie or Series).
+ */
+public class RowSelectionList<T> extends ObservableListBase<T> {
+
+    private final List<T> catalog; // Must support fast random access
+    private final IntUnaryOperator rankOfRow; // Position of a row in the display order, or null if there is none
+    private int[] rows = new int[0];
+
+    public RowSelectionList(List<T> catalog, IntUnaryOperator rankOfRow) {
+        this.catalog = catalog;
+        this.rankOfRow = rankOfRow;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= rows.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rows.length);
+        }
+        return catalog.get(rows[index]);
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    // Copy of the current selection
+    public int[] getRows() {
+        return Arrays.copyOf(rows, rows.length);
+    }
+
+    /**
+     * Replaces the selection. The array is taken over, not copied.
+     * @param newRows Row ids in display order.
+     */
+    public void setRows(int[] newRows) {
+        int[] oldRows = rows;
+        rows = newRows;
+
+        // Skip the unchanged head and tail
+        int common = Math.min(oldRows.length, newRows.length);
+        int prefix = 0;
+        while (prefix < common && oldRows[prefix] == newRows[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < common - prefix
+                && oldRows[oldRows.length - 1 - suffix] == newRows[newRows.length - 1 - suffix]) {
+            suffix++;
+        }
+        int oldEnd = oldRows.length - suffix;
+        int newEnd = newRows.length - suffix;
+        if (prefix == oldEnd && prefix == newEnd) {
+            return; // Same selection
+        }
+
+        beginChange();
+        if (rankOfRow != null && isOrdered(oldRows, prefix, oldEnd) && isOrdered(newRows, prefix, newEnd)) {
+            mergeChanges(oldRows, newRows, prefix, oldEnd, newEnd);
+        } else {
+            // Different order (e.g. after a re-sort): replace the middle part only.
+            // Removed rows are handed over as a lazy view, so they are not materialized either
+            nextReplace(prefix, newEnd, rowsView(oldRows, prefix, oldEnd));
+        }
+        endChange();
+    }
+
+    /**
+     * Walks both selections in display order, reporting single-row removals and additions.
+     * Indexes refer to the list as it looks after the changes reported so far.
+     */
+    private void mergeChanges(int[] oldRows, int[] newRows, int from, int oldEnd, int newEnd) {
+        int i = from;
+        int j = from;
+        while (i < oldEnd || j < newEnd) {
+            if (j >= newEnd || (i < oldEnd && rankOfRow.applyAsInt(oldRows[i]) < rankOfRow.applyAsInt(newRows[j]))) {
+                nextRemove(j, catalog.get(oldRows[i])); // No longer selected
+                i++;
+            } else if (i >= oldEnd || rankOfRow.applyAsInt(newRows[j]) < rankOfRow.applyAsInt(oldRows[i])) {
+                nextAdd(j, j + 1); // Newly selected
+                j++;
+            } else {
+                i++; // Kept
+                j++;
+            }
+        }
+    }
+
+    private boolean isOrdered(int[] rowIds, int from, int to) {
+        for (int k = from + 1; k < to; k++) {
+            if (rankOfRow.applyAsInt(rowIds[k - 1]) >= rankOfRow.applyAsInt(rowIds[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<T> rowsView(int[] rowIds, int from, int to) {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return catalog.get(rowIds[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package gui;
+
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import model.Series;
+
+/**
+ * Table-facing view of a Series. The properties are created once per series and only
+ * re-read from the model in refresh(), so rendering a cell allocates nothing and
+ * doesn't walk the seasons to count episodes. Like MovieViewModel, it is the bean of its properties.
+ */
+public class SeriesViewModel {
+    private final Series series;
+    private final SimpleStringProperty title = new SimpleStringProperty(this, "title");
+    private final SimpleStringProperty genre = new SimpleStringProperty(this, "genre");
+    // Object properties because the editable columns use TextFieldTableCell<Series, Integer>
+    private final SimpleObjectProperty<Integer> seasonCount = new SimpleObjectProperty<>(this, "seasonCount");
+    private final SimpleObjectProperty<Integer> totalEpisodes = new SimpleObjectProperty<>(this, "totalEpisodes");
+    private final SimpleDoubleProperty averageUserRating = new SimpleDoubleProperty(this, "averageUserRating");
+    private final SimpleIntegerProperty medianUserRating = new SimpleIntegerProperty(this, "medianUserRating");
+    private final SimpleIntegerProperty ratingCount = new SimpleIntegerProperty(this, "ratingCount");
+
+    public SeriesViewModel(Series series) {
+        this.series = series;
+        refresh();
+    }
+
+    // Call after the series changed (ratings, seasons); bound cells update themselves
+    public void refresh() {
+        title.set(series.getTitle());
+        genre.set(series.getGenre());
+        seasonCount.set(series.getSeasonCount());
+        totalEpisodes.set(series.getTotalEpisodes());
+        averageUserRating.set(series.getAverageUserRating());
+        medianUserRating.set(series.getRatingHistogram().getMedian());
+        ratingCount.set(series.getRatingHistogram().getCount());
+    }
+
+    public SimpleStringProperty titleProperty() {
+        return title;
+    }
+
+    public SimpleStringProperty genreProperty() {
+        return genre;
+    }
+
+    public SimpleObjectProperty<Integer> seasonCountProperty() {
+        return seasonCount;
+    }
+
+    public SimpleObjectProperty<Integer> totalEpisodesProperty() {
+        return totalEpisodes;
+    }
+
+    public SimpleDoubleProperty averageUserRatingProperty() {
+        return averageUserRating;
+    }
+
+    public SimpleIntegerProperty medianUserRatingProperty() {
+        return medianUserRating;
+    }
+
+    public SimpleIntegerProperty ratingCountProperty() {
+        return ratingCount;
+    }
+}
@@ -0,0 +1,101 @@
+package gui;
+
+import model.Movie;
+import model.Series;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * View models of the movies / series the tables show, created the first time a row shows one.
+ * Every view model a cell is still bound to is found again: a bound property has its view model as
+ * bean, and the cache refers to view models weakly, so refresh() reaches all of them and the rest are
+ * collected. The RECENT most recently shown of each kind are also held strongly (LRU), so rows
+ * scrolled out and back in don't get a new view model each time.
+ * Movie and Series don't override equals/hashCode, so the maps are keyed by identity.
+ */
+public class ViewModelCache {
+    public static final int RECENT = 512;
+
+    private final Cache<Movie, MovieViewModel> movies = new Cache<>(MovieViewModel::new);
+    private final Cache<Series, SeriesViewModel> series = new Cache<>(SeriesViewModel::new);
+
+    private static final class Cache<K, V> {
+        private final Function<K, V> factory;
+        private final Map<K, Ref<K, V>> all = new IdentityHashMap<>();
+        private final ReferenceQueue<V> collected = new ReferenceQueue<>();
+        private final Map<K, V> recent = new LinkedHashMap<K, V>(16, 0.75f, true) { // Access order = LRU first
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > RECENT;
+            }
+        };
+
+        private Cache(Function<K, V> factory) {
+            this.factory = factory;
+        }
+
+        V of(K key) {
+            purge();
+            V value = get(key);
+            if (value == null) {
+                value = factory.apply(key);
+                all.put(key, new Ref<>(key, value, collected));
+            }
+            recent.put(key, value);
+            return value;
+        }
+
+        V get(K key) {
+            Ref<K, V> ref = all.get(key);
+            return ref != null ? ref.get() : null;
+        }
+
+        // Drops the entries of collected view models
+        @SuppressWarnings("unchecked")
+        private void purge() {
+            Ref<K, V> ref;
+            while ((ref = (Ref<K, V>) collected.poll()) != null) {
+                if (all.get(ref.key) == ref) {
+                    all.remove(ref.key);
+                }
+            }
+        }
+    }
+
+    private static final class Ref<K, V> extends WeakReference<V> {
+        private final K key;
+
+        private Ref(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    public MovieViewModel of(Movie movie) {
+        return movies.of(movie);
+    }
+
+    public SeriesViewModel of(Series series) {
+        return this.series.of(series);
+    }
+
+    // Updates the view model if a cell may still show the movie; otherwise it is built fresh when next needed
+    public void refresh(Movie movie) {
+        MovieViewModel viewModel = movies.get(movie);
+        if (viewModel != null) {
+            viewModel.refresh();
+        }
+    }
+
+    public void refresh(Series series) {
+        SeriesViewModel viewModel = this.series.get(series);
+        if (viewModel != null) {
+            viewModel.refresh();
+        }
+    }
+}
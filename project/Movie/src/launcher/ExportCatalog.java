@@ -0,0 +1,120 @@
+package launcher;
+
+import model.Movie;
+import model.Series;
+import utils.CatalogExporter;
+import utils.CatalogEvents;
+import utils.CatalogJournal;
+import utils.Collation;
+import utils.DataLoader;
+import utils.RatingHistory;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Command-line export of the catalog (see CatalogExporter):
+ * ExportCatalog <file> [--format csv|jsonl] [--gzip] [--sorted] [--movies-only | --series-only]
+ *               [--genre G] [--from-year Y] [--to-year Y] [--title TEXT] [--min-rating R]
+ * Format and compression follow the file name (.csv, .jsonl, .gz) unless given.
+ * A series' year is the year of its first season.
+ */
+public class ExportCatalog {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ExportCatalog <file> [--format csv|jsonl] [--gzip] [--sorted] [--movies-only | --series-only]"
+                    + " [--genre G] [--from-year Y] [--to-year Y] [--title TEXT] [--min-rating R]");
+            System.exit(1);
+        }
+        String file = args[0];
+        String name = file.toLowerCase();
+        CatalogExporter.Format format = name.endsWith(".jsonl") || name.endsWith(".jsonl.gz")
+                ? CatalogExporter.Format.JSONL : CatalogExporter.Format.CSV;
+        boolean gzip = name.endsWith(".gz");
+        boolean sorted = false;
+        boolean movies = true;
+        boolean series = true;
+        String genre = null;
+        int fromYear = Integer.MIN_VALUE;
+        int toYear = Integer.MAX_VALUE;
+        String title = null;
+        double minRating = 0;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = CatalogExporter.Format.valueOf(args[++i].toUpperCase());
+                    break;
+                case "--gzip":
+                    gzip = true;
+                    break;
+                case "--sorted":
+                    sorted = true;
+                    break;
+                case "--movies-only":
+                    series = false;
+                    break;
+                case "--series-only":
+                    movies = false;
+                    break;
+                case "--genre":
+                    genre = args[++i];
+                    break;
+                case "--from-year":
+                    fromYear = Integer.parseInt(args[++i]);
+                    break;
+                case "--to-year":
+                    toYear = Integer.parseInt(args[++i]);
+                    break;
+                case "--title":
+                    title = Collation.normalize(args[++i]);
+                    break;
+                case "--min-rating":
+                    minRating = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        DataLoader.loadAllData();
+
+        // Same conditions for both kinds of title
+        String genreFilter = genre;
+        String titleFilter = title;
+        int from = fromYear;
+        int to = toYear;
+        double min = minRating;
+        // With the store open (-Dcatalog.store=true), its year index picks the movies of a year range
+        Set<Integer> inYears = null;
+        if (movies && DataLoader.catalogStore != null && (from != Integer.MIN_VALUE || to != Integer.MAX_VALUE)) {
+            inYears = new HashSet<>();
+            for (Movie movie : DataLoader.findMoviesByYear(from, to, Integer.MAX_VALUE)) {
+                inYears.add(movie.getId());
+            }
+        }
+        Set<Integer> yearMatches = inYears;
+        Predicate<Movie> movieFilter = !movies ? m -> false : m ->
+                (genreFilter == null || m.getGenre().equalsIgnoreCase(genreFilter))
+                        && (yearMatches != null ? yearMatches.contains(m.getId()) : m.getYear() >= from && m.getYear() <= to)
+                        && (titleFilter == null || Collation.normalize(m.getTitle()).contains(titleFilter))
+                        && m.getAverageUserRating() >= min;
+        Predicate<Series> seriesFilter = !series ? s -> false : s ->
+                (genreFilter == null || s.getGenre().equalsIgnoreCase(genreFilter))
+                        && s.getFirstSeasonYear() >= from && s.getFirstSeasonYear() <= to
+                        && (titleFilter == null || Collation.normalize(s.getTitle()).contains(titleFilter))
+                        && s.getAverageUserRating() >= min;
+
+        try {
+            new CatalogExporter(format, gzip, sorted).export(Paths.get(file), movieFilter, seriesFilter);
+        } finally {
+            CatalogEvents.close(); // The journal logs the last edits first
+            CatalogJournal.close();
+            RatingHistory.close();
+            DataLoader.closeCatalogStore();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package launcher;
+
+import model.Movie;
+import model.Series;
+import utils.CatalogEvents;
+import utils.CatalogJournal;
+import utils.DataLoader;
+import utils.RatingHistory;
+import utils.RatingImporter;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Command-line bulk import of rating events (see RatingImporter):
+ * ImportRatings <file> [--parsers N] [--generate COUNT]
+ * A compressed copy (<file>.gz, .zip, .deflate) is read when the file itself is missing.
+ * With --generate, first writes COUNT random events for the loaded titles to the file, so the
+ * import speed can be measured on a file of any size.
+ */
+public class ImportRatings {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ImportRatings <file> [--parsers N] [--generate COUNT]");
+            System.exit(1);
+        }
+        String file = args[0];
+        int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        long generate = 0;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parsers":
+                    parsers = Integer.parseInt(args[++i]);
+                    break;
+                case "--generate":
+                    generate = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        DataLoader.loadAllData();
+        try {
+            if (generate > 0) {
+                generate(file, generate);
+            }
+            new RatingImporter(parsers).importFile(file);
+        } finally {
+            CatalogEvents.close(); // The journal logs the last edits first
+            CatalogJournal.close();
+            RatingHistory.close();
+            DataLoader.closeCatalogStore();
+        }
+    }
+
+    private static void generate(String file, long count) throws Exception {
+        int[] movieIds = DataLoader.movies.stream().mapToInt(Movie::getId).toArray();
+        int[] seriesIds = DataLoader.seriesList.stream().mapToInt(Series::getId).toArray();
+        if (movieIds.length == 0 && seriesIds.length == 0) {
+            throw new IllegalStateException("Den yparxoun titloi gia vathmologies");
+        }
+        Random random = new Random(42);
+        long start = 1_700_000_000L;
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            for (long i = 0; i < count; i++) {
+                boolean series = movieIds.length == 0 || (seriesIds.length > 0 && random.nextInt(4) == 0);
+                String title = series ? "S" + seriesIds[random.nextInt(seriesIds.length)]
+                        : String.valueOf(movieIds[random.nextInt(movieIds.length)]);
+                out.write((1 + random.nextInt(1_000_000)) + "," + title + "," + (1 + random.nextInt(10)) + "," + (start + i));
+                out.newLine();
+            }
+        }
+        System.out.println("[INFO] Generated " + count + " rating events in " + file);
+    }
+}
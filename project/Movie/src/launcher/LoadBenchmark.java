@@ -0,0 +1,186 @@
+package launcher;
+
+import utils.DataLoader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares catalog load times from plain and compressed data files:
+ * LoadBenchmark [--movies N] [--ratings R] [--runs K] [--drop-caches] [--keep]
+ * Generates a synthetic catalog (N movies with R ratings each) in a temporary directory, once as
+ * .txt files and once each as .gz and .deflate copies, and times DataLoader.loadAllData on each,
+ * alternating between them. With --drop-caches the OS page cache is dropped before every run
+ * (Linux, needs root), so reads come from disk; otherwise the files are read from a warm cache.
+ */
+public class LoadBenchmark {
+    private static final String[] DATA_FILES = {"Users.txt", "Actors.txt", "Directors.txt", "Movies.txt", "Series.txt"};
+
+    public static void main(String[] args) throws Exception {
+        int movieCount = 200_000;
+        int ratingsPerMovie = 20;
+        int runs = 3;
+        boolean dropCaches = false;
+        boolean keep = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--movies":
+                    movieCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--ratings":
+                    ratingsPerMovie = Integer.parseInt(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--drop-caches":
+                    dropCaches = true;
+                    break;
+                case "--keep":
+                    keep = true;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        Path root = Files.createTempDirectory("load-benchmark");
+        String[] variants = {"txt", "gz", "deflate"};
+        try {
+            Path plain = Files.createDirectory(root.resolve("txt"));
+            generate(plain, movieCount, ratingsPerMovie);
+            long rawBytes = directorySize(plain);
+            for (String variant : variants) {
+                if (!variant.equals("txt")) {
+                    compress(plain, Files.createDirectory(root.resolve(variant)), variant);
+                }
+            }
+
+            List<List<Double>> times = new ArrayList<>();
+            for (int v = 0; v < variants.length; v++) {
+                times.add(new ArrayList<>());
+            }
+            for (int run = 0; run < runs; run++) {
+                for (int v = 0; v < variants.length; v++) {
+                    if (dropCaches && !dropPageCache()) {
+                        System.err.println("[WARNING] Could not drop the page cache (needs root on Linux); timing a warm cache");
+                        dropCaches = false;
+                    }
+                    long start = System.nanoTime();
+                    DataLoader.loadAllData(root.resolve(variants[v]) + "/");
+                    times.get(v).add((System.nanoTime() - start) / 1_000_000_000.0);
+                }
+            }
+
+            System.out.printf("%n--- Load benchmark: %d movies x %d ratings, %.1f MB of text, %s cache ---%n",
+                    movieCount, ratingsPerMovie, rawBytes / 1e6, dropCaches ? "cold" : "warm");
+            for (int v = 0; v < variants.length; v++) {
+                double[] sorted = times.get(v).stream().mapToDouble(Double::doubleValue).sorted().toArray();
+                double median = sorted[sorted.length / 2];
+                long bytes = directorySize(root.resolve(variants[v]));
+                System.out.printf("%-8s %8.1f MB on disk   best %6.2f s   median %6.2f s   %7.1f MB/s of text   %9.0f movies/s%n",
+                        variants[v], bytes / 1e6, sorted[0], median, rawBytes / 1e6 / median, movieCount / median);
+            }
+        } finally {
+            if (keep) {
+                System.out.println("Data kept in " + root);
+            } else {
+                deleteRecursively(root);
+            }
+        }
+    }
+
+    // Writes the data files; the people are the ones DataLoader adds itself when missing
+    private static void generate(Path dir, int movieCount, int ratingsPerMovie) throws IOException {
+        Random random = new Random(42);
+        Files.write(dir.resolve("Users.txt"), "Bench,User,bench,bench@example.com\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("Actors.txt"), new byte[0]);
+        Files.write(dir.resolve("Directors.txt"), new byte[0]);
+        String[] genres = {"Drama", "Comedy", "Sci-Fi", "Crime", "Musical"};
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("Movies.txt"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < movieCount; i++) {
+                StringBuilder line = new StringBuilder();
+                line.append("Movie ").append(i).append(',').append(1950 + random.nextInt(75)).append(',')
+                        .append(genres[random.nextInt(genres.length)]).append(',').append(80 + random.nextInt(100))
+                        .append(",Frank Darabont,").append(1 + random.nextInt(90) / 10.0).append(",Bryan Cranston,");
+                for (int r = 0; r < ratingsPerMovie; r++) {
+                    if (r > 0) {
+                        line.append('|');
+                    }
+                    line.append(1 + random.nextInt(100_000)).append(':').append(1 + random.nextInt(10))
+                            .append(':').append(1_700_000_000L + random.nextInt(50_000_000));
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("Series.txt"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 10; i++) {
+                out.write("SERIES:Series " + i + ",Drama,1:8|2:9");
+                out.newLine();
+                out.write("SEASON:1, 2010:");
+                out.newLine();
+                out.write("50,Vince Gilligan,8.5,Bryan Cranston");
+                out.newLine();
+            }
+        }
+    }
+
+    private static void compress(Path from, Path to, String variant) throws IOException {
+        for (String name : DATA_FILES) {
+            try (InputStream in = Files.newInputStream(from.resolve(name));
+                 OutputStream file = Files.newOutputStream(to.resolve(name + "." + variant));
+                 OutputStream out = variant.equals("gz") ? new GZIPOutputStream(file, 64 * 1024) : new DeflaterOutputStream(file)) {
+                in.transferTo(out);
+            }
+        }
+    }
+
+    private static boolean dropPageCache() {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "sync && echo 3 > /proc/sys/vm/drop_caches")
+                    .redirectErrorStream(true).start();
+            process.getInputStream().readAllBytes();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Only the data files, not what loading writes next to them (ids, log)
+    private static long directorySize(Path dir) throws IOException {
+        long size = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (Arrays.stream(DATA_FILES).anyMatch(name::startsWith)) {
+                    size += Files.size(file);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
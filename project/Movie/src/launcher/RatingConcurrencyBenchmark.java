@@ -0,0 +1,255 @@
+package launcher;
+
+import model.Actor;
+import model.ApproximateRatingStats;
+import model.Director;
+import model.Movie;
+import model.RatingHistogram;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test and throughput benchmark of concurrent rating updates on a few hot titles:
+ * RatingConcurrencyBenchmark [--stress-only] [--seconds S] [--titles N]
+ * The stress test runs writers (overlapping users, so ratings get replaced) against readers,
+ * then checks that every title's histogram matches its rating map, also across the switch to
+ * approximate mode. The benchmark then times every writers x readers combination, once
+ * lock-free and once with all writes behind one global lock, as before the change.
+ * Exits with status 1 if a check fails.
+ */
+public class RatingConcurrencyBenchmark {
+    private static final int[] WRITERS = {1, 2, 4, 8};
+    private static final int[] READERS = {0, 2, 8};
+    private static final Object GLOBAL_LOCK = new Object();
+
+    public static void main(String[] args) throws Exception {
+        boolean stressOnly = false;
+        double seconds = 1;
+        int titleCount = 4;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stress-only":
+                    stressOnly = true;
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--titles":
+                    titleCount = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        boolean ok = stress(8, 4, 200_000, 5_000, false) & stress(8, 4, 200_000, 5_000, true);
+        System.out.println(ok ? "[INFO] Stress test passed" : "[ERROR] Stress test failed");
+        if (!ok) {
+            System.exit(1);
+        }
+        if (stressOnly) {
+            return;
+        }
+
+        System.out.printf("%n--- Concurrent ratings: %d hot titles, %d processors, %.1f s per run ---%n",
+                titleCount, Runtime.getRuntime().availableProcessors(), seconds);
+        System.out.printf("%-8s %-8s %16s %16s %16s %16s%n", "writers", "readers", "global lock w/s", "global lock r/s", "lock-free w/s", "lock-free r/s");
+        for (int writers : WRITERS) {
+            for (int readers : READERS) {
+                long[] locked = run(writers, readers, titleCount, seconds, true);
+                long[] free = run(writers, readers, titleCount, seconds, false);
+                System.out.printf("%-8d %-8d %16.0f %16.0f %16.0f %16.0f%n", writers, readers,
+                        locked[0] / seconds, locked[1] / seconds, free[0] / seconds, free[1] / seconds);
+            }
+        }
+    }
+
+    /**
+     * Writers rate the same titles with overlapping user ids while readers check that the
+     * aggregates stay in range; afterwards the histograms must match the rating maps exactly.
+     * @param approximate Lowers the threshold so titles switch to approximate mode mid-run.
+     *                    Every rating is then by a different user, so the totals are known exactly.
+     */
+    private static boolean stress(int writers, int readers, int ratingsPerWriter, int users, boolean approximate)
+            throws InterruptedException {
+        int previousThreshold = ApproximateRatingStats.getThreshold();
+        if (approximate) {
+            ApproximateRatingStats.setThreshold(users / 2);
+        }
+        try {
+            List<Movie> titles = createTitles(3);
+            AtomicReference<String> problem = new AtomicReference<>();
+            AtomicBoolean writing = new AtomicBoolean(true);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int firstUser = w * ratingsPerWriter;
+                threads.add(new Thread(() -> {
+                    await(start);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ratingsPerWriter; i++) {
+                        // In approximate mode every rating is by a new user, so none replaces another and all must be counted
+                        int user = approximate ? firstUser + i : random.nextInt(users);
+                        Movie movie = approximate ? titles.get(i % titles.size()) : titles.get(random.nextInt(titles.size()));
+                        movie.addUserRating(user, 1 + random.nextInt(10), 1_700_000_000L + i);
+                    }
+                }));
+            }
+            List<Thread> readerThreads = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                readerThreads.add(new Thread(() -> {
+                    await(start);
+                    while (writing.get()) {
+                        for (Movie movie : titles) {
+                            double average = movie.getAverageUserRating();
+                            if (average != 0 && (average < 1 || average > 10)) {
+                                problem.compareAndSet(null, movie.getTitle() + ": average " + average + " out of range");
+                            }
+                            int median = movie.getRatingHistogram().getMedian();
+                            if (median < 0 || median > 10) {
+                                problem.compareAndSet(null, movie.getTitle() + ": median " + median + " out of range");
+                            }
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            readerThreads.forEach(Thread::start);
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            writing.set(false);
+            for (Thread thread : readerThreads) {
+                thread.join();
+            }
+
+            long total = 0;
+            for (Movie movie : titles) {
+                RatingHistogram histogram = movie.getRatingHistogram();
+                total += histogram.getCount();
+                if (approximate) {
+                    if (!movie.isApproximate()) {
+                        problem.compareAndSet(null, movie.getTitle() + " never switched to approximate mode");
+                    }
+                    // Every rater reached the sketch, before or after the switch
+                    long estimate = movie.getDistinctRaters();
+                    long raters = histogram.getCount();
+                    if (Math.abs(estimate - raters) > raters * 0.05) {
+                        problem.compareAndSet(null, movie.getTitle() + ": " + estimate + " distinct raters, expected about " + raters);
+                    }
+                    continue;
+                }
+                Map<Integer, Integer> ratings = movie.getUserRatings();
+                if (histogram.getCount() != ratings.size()) {
+                    problem.compareAndSet(null, movie.getTitle() + ": histogram has " + histogram.getCount() + " ratings, map has " + ratings.size());
+                }
+                for (int score = 1; score <= RatingHistogram.BUCKETS; score++) {
+                    int expected = score;
+                    long inMap = ratings.values().stream().filter(r -> r == expected).count();
+                    if (histogram.getCount(score) != inMap) {
+                        problem.compareAndSet(null, movie.getTitle() + ": bucket " + score + " is " + histogram.getCount(score) + ", map has " + inMap);
+                    }
+                }
+            }
+            if (approximate && total != (long) writers * ratingsPerWriter) {
+                // No rating was replaced, so none may be missing
+                problem.compareAndSet(null, "Histograms hold " + total + " ratings, " + (long) writers * ratingsPerWriter + " were added");
+            }
+            String message = problem.get();
+            System.out.println((message == null ? "[INFO] " : "[ERROR] ") + "Stress " + (approximate ? "(approximate mode)" : "(exact mode)")
+                    + ": " + writers + " writers, " + readers + " readers, " + (long) writers * ratingsPerWriter + " ratings"
+                    + (message == null ? ", consistent" : ": " + message));
+            return message == null;
+        } finally {
+            ApproximateRatingStats.setThreshold(previousThreshold);
+        }
+    }
+
+    // Returns {writes, reads} done in the given time
+    private static long[] run(int writers, int readers, int titleCount, double seconds, boolean globalLock)
+            throws InterruptedException {
+        List<Movie> titles = createTitles(titleCount);
+        LongAdder writes = new LongAdder();
+        LongAdder reads = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                while (running.get()) {
+                    Movie movie = titles.get(random.nextInt(titles.size()));
+                    int user = random.nextInt(1_000_000);
+                    int rating = 1 + random.nextInt(10);
+                    if (globalLock) {
+                        synchronized (GLOBAL_LOCK) {
+                            movie.addUserRating(user, rating, 1_700_000_000L);
+                        }
+                    } else {
+                        movie.addUserRating(user, rating, 1_700_000_000L);
+                    }
+                    done++;
+                }
+                writes.add(done);
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                double sink = 0;
+                while (running.get()) {
+                    Movie movie = titles.get(random.nextInt(titles.size()));
+                    if (globalLock) {
+                        synchronized (GLOBAL_LOCK) {
+                            sink += movie.getAverageUserRating();
+                        }
+                    } else {
+                        sink += movie.getAverageUserRating();
+                    }
+                    done++;
+                }
+                reads.add(done + (sink < 0 ? 1 : 0)); // Keeps the reads from being optimized away
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new long[]{writes.sum(), reads.sum()};
+    }
+
+    private static List<Movie> createTitles(int count) {
+        Director director = new Director("Bench", "Director", LocalDate.of(1970, 1, 1), 'M', new ArrayList<>());
+        Actor actor = new Actor("Bench", "Actor", LocalDate.of(1980, 1, 1), 'F', "");
+        List<Movie> titles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            titles.add(new Movie("Hot title " + i, 2024, "Drama", 120, director, 8.0, actor));
+        }
+        return titles;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package launcher;
+
+import model.Movie;
+import model.Series;
+import model.TrendScore;
+import utils.CatalogEvents;
+import utils.CatalogJournal;
+import utils.DataLoader;
+import utils.RatingEventLog;
+import utils.RatingHistory;
+
+import java.time.Instant;
+
+/**
+ * Command-line access to the rating history (see RatingHistory):
+ * RatingHistoryTool audit <title>   every rating event of a title, oldest first (S12 for a series, 12 or M12 for a movie)
+ * RatingHistoryTool rebuild         recomputes every title's ratings from the whole history and writes the data files
+ */
+public class RatingHistoryTool {
+    private static final String USAGE = "Usage: RatingHistoryTool audit <title> | rebuild";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || (args[0].equals("audit") && args.length != 2)) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        DataLoader.loadAllData();
+        try {
+            switch (args[0]) {
+                case "audit":
+                    audit(args[1].trim());
+                    break;
+                case "rebuild":
+                    RatingHistory.rebuild();
+                    CatalogJournal.compact(); // The data files and the checkpoint follow the rebuilt ratings
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        } finally {
+            CatalogEvents.close();
+            CatalogJournal.close();
+            RatingHistory.close();
+            DataLoader.closeCatalogStore();
+        }
+    }
+
+    private static void audit(String title) throws Exception {
+        boolean series = title.startsWith("S") || title.startsWith("s");
+        int id = Integer.parseInt(series || title.startsWith("M") || title.startsWith("m") ? title.substring(1) : title);
+        Movie movie = series ? null : DataLoader.findMovieById(id);
+        Series show = series ? DataLoader.findSeriesById(id) : null;
+        if (movie == null && show == null) {
+            System.err.println("Unknown title: " + title);
+            return;
+        }
+        System.out.println("--- Rating history of " + title + " (" + (movie != null ? movie.getTitle() : show.getTitle()) + ") ---");
+        long[] events = new long[1];
+        RatingEventLog.Handler print = (sequence, titleKey, userId, rating, epochSecond) -> {
+            events[0]++;
+            System.out.printf("#%-10d user %-8d rating %2d   %s%n", sequence, userId, rating,
+                    epochSecond == TrendScore.UNKNOWN_TIME ? "time unknown" : Instant.ofEpochSecond(epochSecond).toString());
+        };
+        if (movie != null) {
+            RatingHistory.audit(movie, print);
+        } else {
+            RatingHistory.audit(show, print);
+        }
+        System.out.println(events[0] + " events");
+    }
+}
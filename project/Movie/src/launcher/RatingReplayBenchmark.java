@@ -0,0 +1,175 @@
+package launcher;
+
+import model.Actor;
+import model.Director;
+import model.Movie;
+import utils.DataLoader;
+import utils.RatingEventLog;
+import utils.RatingHistory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replay speed of the rating history (see RatingHistory):
+ * RatingReplayBenchmark [--events N] [--titles T] [--users U] [--tail K] [--runs R] [--keep]
+ * Writes N synthetic rating events (default 100 million) for T movies into a temporary Ratings.log, then times
+ *  - fold: reading every event into per-title counts and sums, as reprocessing with a new ranking formula does
+ *  - one by one: adding every event to the movies (rating maps, histogram, trend score) in turn
+ *  - replay: the same with RatingHistory.replay, as a rebuild or startup without a snapshot does
+ *  - tail replay: RatingHistory.replay of only the last K events, as startup after a snapshot does
+ * Checks that replay leaves the movies as adding the events one by one does.
+ * Distinct (title, user) pairs are at most T x U, which bounds the memory of the full replays.
+ */
+public class RatingReplayBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long eventCount = 100_000_000L;
+        int titleCount = 2_000;
+        int userCount = 1_000;
+        long tail = 1_000_000;
+        int runs = 3;
+        boolean keep = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--events":
+                    eventCount = Long.parseLong(args[++i]);
+                    break;
+                case "--titles":
+                    titleCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--users":
+                    userCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--tail":
+                    tail = Long.parseLong(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--keep":
+                    keep = true;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        tail = Math.min(tail, eventCount);
+
+        Path dir = Files.createTempDirectory("replay-benchmark");
+        Path path = dir.resolve("Ratings.log");
+        try {
+            Movie[] titles = createTitles(titleCount);
+
+            long start = System.nanoTime();
+            try (RatingEventLog log = new RatingEventLog(path)) {
+                Random random = new Random(42);
+                long time = 1_700_000_000L;
+                for (long e = 0; e < eventCount; e++) {
+                    if ((e & 63) == 0) {
+                        time++; // About 64 ratings a second
+                    }
+                    log.append(RatingEventLog.titleKey(false, 1 + random.nextInt(titleCount)), 1 + random.nextInt(userCount), 1 + random.nextInt(10), time);
+                }
+            }
+            double writeSeconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = Files.size(path) / 1e6;
+            System.out.printf("[INFO] Wrote %d events (%.0f MB) in %.1f s, %.0f events/s%n", eventCount, megabytes, writeSeconds, eventCount / writeSeconds);
+
+            // Fold into per-title aggregates
+            double[] foldTimes = new double[runs];
+            long[] counts = new long[titleCount];
+            long[] sums = new long[titleCount];
+            for (int run = 0; run < runs; run++) {
+                Arrays.fill(counts, 0);
+                Arrays.fill(sums, 0);
+                start = System.nanoTime();
+                RatingEventLog.read(path, 0, (sequence, titleKey, userId, rating, epochSecond) -> {
+                    int index = RatingEventLog.titleId(titleKey) - 1;
+                    counts[index]++;
+                    sums[index] += rating;
+                });
+                foldTimes[run] = (System.nanoTime() - start) / 1e9;
+            }
+            Arrays.sort(foldTimes);
+            long total = Arrays.stream(counts).sum();
+            if (total != eventCount) {
+                System.err.println("[ERROR] Folded " + total + " of " + eventCount + " events");
+                System.exit(1);
+            }
+
+            // Into the model: everything one by one, everything and only the tail after a snapshot with RatingHistory
+            start = System.nanoTime();
+            RatingEventLog.read(path, 0, (sequence, titleKey, userId, rating, epochSecond) ->
+                    titles[RatingEventLog.titleId(titleKey) - 1].addUserRating(userId, rating, epochSecond));
+            double oneByOneSeconds = (System.nanoTime() - start) / 1e9;
+            double fullSeconds;
+            double tailSeconds;
+            try (RatingEventLog log = new RatingEventLog(path)) {
+                Movie[] replayed = createTitles(titleCount);
+                start = System.nanoTime();
+                RatingHistory.replay(log, 0);
+                fullSeconds = (System.nanoTime() - start) / 1e9;
+                for (int i = 0; i < titleCount; i++) {
+                    if (!sameRatings(titles[i], replayed[i])) {
+                        System.err.println("[ERROR] Replay differs from adding the events one by one for " + titles[i].getTitle());
+                        System.exit(1);
+                    }
+                }
+                createTitles(titleCount);
+                start = System.nanoTime();
+                RatingHistory.replay(log, eventCount - tail);
+                tailSeconds = (System.nanoTime() - start) / 1e9;
+            }
+
+            System.out.printf("%n--- Rating replay: %d events, %d titles, %d users, %.0f MB ---%n", eventCount, titleCount, userCount, megabytes);
+            System.out.printf("%-14s %12s %10s %14s %10s%n", "", "events", "seconds", "events/s", "MB/s");
+            System.out.printf("%-14s %12d %10.2f %14.0f %10.0f   (best of %d, median %.2f s)%n", "fold", eventCount, foldTimes[0],
+                    eventCount / foldTimes[0], megabytes / foldTimes[0], runs, foldTimes[runs / 2]);
+            System.out.printf("%-14s %12d %10.2f %14.0f %10.0f%n", "one by one", eventCount, oneByOneSeconds,
+                    eventCount / oneByOneSeconds, megabytes / oneByOneSeconds);
+            System.out.printf("%-14s %12d %10.2f %14.0f %10.0f%n", "replay", eventCount, fullSeconds,
+                    eventCount / fullSeconds, megabytes / fullSeconds);
+            System.out.printf("%-14s %12d %10.2f %14.0f %10.0f%n", "tail replay", tail, tailSeconds,
+                    tail / tailSeconds, megabytes * tail / eventCount / tailSeconds);
+            System.out.printf("A snapshot %d events before the end replays in %.1f%% of the time of the full history%n",
+                    tail, 100 * tailSeconds / fullSeconds);
+        } finally {
+            if (keep) {
+                System.out.println("Log kept in " + path);
+            } else {
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(dir);
+            }
+        }
+    }
+
+    // Replaces the catalog's movies by movies 1..count, where RatingHistory.replay finds them by id
+    private static Movie[] createTitles(int count) {
+        DataLoader.movies.clear();
+        DataLoader.moviesById.clear();
+        Director director = new Director("Bench", "Director", LocalDate.of(1970, 1, 1), 'M', new ArrayList<>());
+        Actor actor = new Actor("Bench", "Actor", LocalDate.of(1980, 1, 1), 'F', "");
+        List<Movie> titles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Movie movie = new Movie(i + 1, "Replay title " + i, 2024, "Drama", 120, director, 8.0, actor);
+            DataLoader.addMovie(movie);
+            titles.add(movie);
+        }
+        return titles.toArray(new Movie[0]);
+    }
+
+    // Trend scores are summed in the same order either way, so they match exactly
+    private static boolean sameRatings(Movie a, Movie b) {
+        return a.getUserRatings().equals(b.getUserRatings())
+                && a.getRatingHistogram().getCount() == b.getRatingHistogram().getCount()
+                && a.getAverageUserRating() == b.getAverageUserRating()
+                && a.getTrendScore().getRankKey() == b.getTrendScore().getRankKey();
+    }
+}
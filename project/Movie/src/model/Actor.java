@@ -3,7 +3,6 @@ package model;
 import java.time.LocalDate;
 
 public class Actor {
-    private static int counter = 1;
     private final int id;
     private String firstName;
     private String lastName;
@@ -12,7 +11,7 @@ public class Actor {
     private String race;
 
     public Actor(String firstName, String lastName, LocalDate birthDate, char gender, String race) {
-        this.id = counter++;
+        this.id = IdAllocator.ACTORS.next();
         this.firstName = firstName;
         this.lastName = lastName;
         this.birthDate = birthDate;
@@ -28,7 +27,25 @@ public class Actor {
         return firstName + " " + lastName;
     }
 
-    // Getters & setters omitted for brevity (tha ta valoume an theleis)
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public char getGender() {
+        return gender;
+    }
+
+    public String getRace() {
+        return race;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,86 @@
+package model;
+
+/**
+ * Rating statistics of a title without a per-user map, for titles with very many ratings.
+ * Distinct raters come from a HyperLogLog sketch. Median and percentiles come from the
+ * rating histogram, which is exact because ratings are whole numbers 1–10.
+ * Both parts can be merged, so statistics of one title computed on different shards can be combined.
+ * Without the per-user map a changed rating can't be told apart from a new one, so it counts as new.
+ */
+public class ApproximateRatingStats {
+    // A title switches to approximate mode once it has this many ratings
+    private static int threshold = 1_000_000;
+    // Target standard error of the distinct rater estimate
+    private static double relativeError = 0.01;
+
+    private final HyperLogLog raters;
+    private final RatingHistogram histogram;
+
+    public ApproximateRatingStats() {
+        this(new RatingHistogram());
+    }
+
+    // Continues from an existing histogram (the one the title kept while in exact mode)
+    ApproximateRatingStats(RatingHistogram histogram) {
+        this.raters = HyperLogLog.withRelativeError(relativeError);
+        this.histogram = histogram;
+    }
+
+    // Continues from statistics saved earlier (see RatingHistory's checkpoint)
+    public ApproximateRatingStats(HyperLogLog raters, RatingHistogram histogram) {
+        this.raters = raters;
+        this.histogram = histogram;
+    }
+
+    public void add(int userId, int rating) {
+        raters.add(userId);
+        histogram.add(rating);
+    }
+
+    // Records a rater without a new rating, used when converting from the exact map
+    void addRater(int userId) {
+        raters.add(userId);
+    }
+
+    public void merge(ApproximateRatingStats other) {
+        raters.merge(other.raters);
+        histogram.merge(other.histogram);
+    }
+
+    public long getDistinctRaters() {
+        return raters.estimate();
+    }
+
+    public HyperLogLog getRaters() {
+        return raters;
+    }
+
+    public double getDistinctRatersError() {
+        return raters.getRelativeError();
+    }
+
+    public RatingHistogram getHistogram() {
+        return histogram;
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    public static void setThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("To orio prepei na einai toulaxiston 1");
+        }
+        ApproximateRatingStats.threshold = threshold;
+    }
+
+    public static double getRelativeError() {
+        return relativeError;
+    }
+
+    // Applies to titles that switch to approximate mode from now on
+    public static void setRelativeError(double relativeError) {
+        HyperLogLog.withRelativeError(relativeError); // Validates the value
+        ApproximateRatingStats.relativeError = relativeError;
+    }
+}
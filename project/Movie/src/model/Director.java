@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Director {
-    private static int counter = 1;
     private final int id;
     private String firstName;
     private String lastName;
@@ -14,7 +13,7 @@ public class Director {
     private List<String> bestWorks;
 
     public Director(String firstName, String lastName, LocalDate birthDate, char gender, List<String> bestWorks) {
-        this.id = counter++;
+        this.id = IdAllocator.DIRECTORS.next();
         this.firstName = firstName;
         this.lastName = lastName;
         this.birthDate = birthDate;
@@ -36,7 +35,25 @@ public class Director {
         return firstName + " " + lastName;
     }
 
-    // Getters/setters as needed...
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public char getGender() {
+        return gender;
+    }
+
+    public List<String> getBestWorks() {
+        return bestWorks;
+    }
 
     @Override
     public String toString() {
@@ -1,7 +1,6 @@
 package model;
 
 public class Episode {
-    private static int counter = 1;
     private final int id;
     private int duration;
     private Director director;
@@ -9,16 +8,42 @@ public class Episode {
     private Actor leadActor;
 
     public Episode(int duration, Director director, double imdbRating, Actor leadActor) {
+        this(IdAllocator.EPISODES.next(), duration, director, imdbRating, leadActor);
+    }
+
+    // Re-creates an episode with the id it had before, e.g. when its series is paged back in
+    public Episode(int id, int duration, Director director, double imdbRating, Actor leadActor) {
         if (imdbRating < 1.0 || imdbRating > 10.0) {
             throw new IllegalArgumentException("Lathos vathmologia IMDB");
         }
-        this.id = counter++;
+        IdAllocator.EPISODES.observe(id);
+        this.id = id;
         this.duration = duration;
         this.director = director;
         this.imdbRating = imdbRating;
         this.leadActor = leadActor;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public Director getDirector() {
+        return director;
+    }
+
+    public double getImdbRating() {
+        return imdbRating;
+    }
+
+    public Actor getLeadActor() {
+        return leadActor;
+    }
+
     @Override
     public String toString() {
         return "Episode{" +
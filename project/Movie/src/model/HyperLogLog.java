@@ -0,0 +1,123 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * HyperLogLog estimate of the number of distinct values (here: distinct raters of a title).
+ * Uses 2^precision one-byte registers; the standard error is about 1.04 / sqrt(2^precision).
+ * Two sketches with the same precision can be merged, e.g. when combining shards.
+ * Registers only grow and are raised with a CAS, so concurrent adds need no lock.
+ */
+public class HyperLogLog {
+    private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("I akriveia prepei na einai metaxy " + MIN_PRECISION + " kai " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    // Continues from registers saved earlier with getRegisters
+    public HyperLogLog(byte[] registers) {
+        this(Integer.numberOfTrailingZeros(registers.length));
+        if (registers.length != 1 << precision) {
+            throw new IllegalArgumentException("To plithos ton registers prepei na einai dynami tou 2");
+        }
+        System.arraycopy(registers, 0, this.registers, 0, registers.length);
+    }
+
+    /**
+     * Creates a sketch whose standard error is at most the given relative error.
+     * @param relativeError E.g. 0.01 for about 1%.
+     */
+    public static HyperLogLog withRelativeError(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new IllegalArgumentException("To sfalma prepei na einai metaxy 0 kai 1");
+        }
+        double registersNeeded = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registersNeeded) / Math.log(2));
+        return new HyperLogLog(Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision)));
+    }
+
+    public void add(int value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        // Position of the first 1-bit in the remaining bits (capped if they are all zero)
+        int rank = Math.min(Long.numberOfLeadingZeros(rest), 64 - precision) + 1;
+        raise(index, rank);
+    }
+
+    // Lock-free max: a concurrent writer's larger rank is never overwritten by a smaller one
+    private void raise(int index, int rank) {
+        byte current;
+        while (rank > (current = (byte) REGISTER.getVolatile(registers, index))) {
+            if (REGISTER.compareAndSet(registers, index, current, (byte) rank)) {
+                return;
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros); // Linear counting for small cardinalities
+        }
+        return Math.round(estimate);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Den ginetai synenosi sketch me diaforetiki akriveia");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            raise(i, other.registers[i]);
+        }
+    }
+
+    // A copy of the registers, e.g. to save the sketch
+    public byte[] getRegisters() {
+        byte[] copy = new byte[registers.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) REGISTER.getVolatile(registers, i);
+        }
+        return copy;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    // 64-bit finalizer from MurmurHash3, spreads consecutive ids over all registers
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
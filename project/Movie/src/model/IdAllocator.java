@@ -0,0 +1,113 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out ids for one kind of entity. Safe to use from many threads without a lock:
+ * an id is a single atomic increment, and a loader thread can take a whole block at once.
+ * Ids are reserved in blocks of RESERVATION_BLOCK; each new reservation is reported to a
+ * listener (which stores it, see DataLoader), so after a restart allocation continues above
+ * every id handed out before, even if the application did not shut down cleanly.
+ * Movies, series and users keep the id stored in their data file record (see DataLoader.recordId);
+ * records without one (older or hand-written files) get the next free id in file order.
+ */
+public final class IdAllocator {
+
+    public interface ReservationListener {
+        // Called before ids up to (not including) limit are handed out
+        void reserved(IdAllocator allocator, int limit);
+    }
+
+    public static final int RESERVATION_BLOCK = 1024;
+
+    public static final IdAllocator MOVIES = new IdAllocator("movie");
+    public static final IdAllocator SERIES = new IdAllocator("series");
+    public static final IdAllocator EPISODES = new IdAllocator("episode");
+    public static final IdAllocator ACTORS = new IdAllocator("actor");
+    public static final IdAllocator DIRECTORS = new IdAllocator("director");
+    public static final IdAllocator USERS = new IdAllocator("user");
+
+    private static volatile ReservationListener listener = (allocator, limit) -> { };
+
+    private final String name;
+    private final AtomicInteger next = new AtomicInteger(1);
+    private volatile int reservedLimit = 1; // Ids below this may be handed out
+
+    private IdAllocator(String name) {
+        this.name = name;
+    }
+
+    public static IdAllocator[] all() {
+        return new IdAllocator[] {MOVIES, SERIES, EPISODES, ACTORS, DIRECTORS, USERS};
+    }
+
+    public static void setReservationListener(ReservationListener listener) {
+        IdAllocator.listener = listener;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int next() {
+        int id = next.getAndIncrement();
+        if (id >= reservedLimit) {
+            reserve(id + 1);
+        }
+        return id;
+    }
+
+    /**
+     * Takes count consecutive ids at once, e.g. for a loader thread that creates many entities.
+     * @return The first id of the block.
+     */
+    public int nextBlock(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("To plithos prepei na einai toulaxiston 1");
+        }
+        int first = next.getAndAdd(count);
+        if (first + count > reservedLimit) {
+            reserve(first + count);
+        }
+        return first;
+    }
+
+    /**
+     * Records an id that is already in use (e.g. replayed from disk), so it is never handed out again.
+     */
+    public void observe(int id) {
+        next.accumulateAndGet(id + 1, Math::max);
+        if (id >= reservedLimit) {
+            reserve(id + 1);
+        }
+    }
+
+    /**
+     * Continues above a limit stored by an earlier run. Call after the data files are loaded.
+     * @param limit A limit previously passed to the listener.
+     */
+    public synchronized void restore(int limit) {
+        next.accumulateAndGet(limit, Math::max);
+        if (limit > reservedLimit) {
+            reservedLimit = limit; // Already stored
+        }
+    }
+
+    // The next id that would be handed out
+    public int peek() {
+        return next.get();
+    }
+
+    public int getReservedLimit() {
+        return reservedLimit;
+    }
+
+    private synchronized void reserve(int needed) {
+        if (needed <= reservedLimit) {
+            return; // Another thread reserved it meanwhile
+        }
+        int limit = needed + RESERVATION_BLOCK;
+        listener.reserved(this, limit);
+        reservedLimit = limit;
+    }
+}
@@ -1,10 +1,18 @@
 package model;
 
-import java.util.HashMap;
+import storage.WorkingSet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Movie implements WorkingSet.Pageable {
+    // Estimated heap size of one rating: an entry in each per-user map with its boxed values
+    private static final int BYTES_PER_RATING = 128;
 
-public class Movie {
-    private static int counter = 1;
     private final int id;
     private String title;
     private int year;
@@ -13,13 +21,24 @@ public class Movie {
     private Director director;
     private double imdbRating;
     private Actor leadActor;
-    private Map<Integer, Integer> userRatings; // userId -> rating (1–10)
+    private volatile Map<Integer, Integer> userRatings; // userId -> rating (1–10); null while paged out
+    private volatile Map<Integer, Long> ratingTimes; // userId -> epoch second of the rating (0 = unknown)
+    private TrendScore trendScore;
+    private RatingHistogram ratingHistogram;
+    private volatile ApproximateRatingStats approximateStats; // Set once the title has too many ratings for the per-user maps
+    private final WorkingSet.Entry paging = new WorkingSet.Entry(this);
 
     public Movie(String title, int year, String genre, int duration, Director director, double imdbRating, Actor leadActor) {
+        this(IdAllocator.MOVIES.next(), title, year, genre, duration, director, imdbRating, leadActor);
+    }
+
+    // Re-creates a movie with the id it had before, e.g. when replaying the write-ahead log
+    public Movie(int id, String title, int year, String genre, int duration, Director director, double imdbRating, Actor leadActor) {
         if (imdbRating < 1.0 || imdbRating > 10.0) {
             throw new IllegalArgumentException("Lathos vathmologia IMDB");
         }
-        this.id = counter++;
+        IdAllocator.MOVIES.observe(id);
+        this.id = id;
         this.title = title;
         this.year = year;
         this.genre = genre;
@@ -27,18 +46,95 @@ public class Movie {
         this.director = director;
         this.imdbRating = imdbRating;
         this.leadActor = leadActor;
-        this.userRatings = new HashMap<>();
+        this.userRatings = new ConcurrentHashMap<>();
+        this.ratingTimes = new ConcurrentHashMap<>();
+        this.trendScore = new TrendScore();
+        this.ratingHistogram = new RatingHistogram();
     }
 
     public void addUserRating(int userId, int rating) {
+        addUserRating(userId, rating, Instant.now().getEpochSecond());
+    }
+
+    // Can be called from several threads at once without a lock while paging is off (see WorkingSet)
+    public void addUserRating(int userId, int rating, long epochSecond) {
         if (rating < 1 || rating > 10) {
             throw new IllegalArgumentException("Vathmologia prepei na einai metaxy 1 kai 10");
         }
-        userRatings.put(userId, rating);
+        WorkingSet.access(paging);
+        trendScore.record(rating, epochSecond);
+        ApproximateRatingStats approximate = approximateStats;
+        if (approximate != null) {
+            approximate.add(userId, rating); // No per-user maps in approximate mode
+            return;
+        }
+        Map<Integer, Integer> ratings = userRatings;
+        // Counted before it can be replaced, so a concurrent change by the same user never empties a bucket twice
+        ratingHistogram.add(rating);
+        Integer previous = ratings.put(userId, rating);
+        if (previous != null) {
+            ratingHistogram.remove(previous); // An overwritten score leaves its old bucket
+        }
+        ratingTimes.put(userId, epochSecond);
+        approximate = approximateStats;
+        if (approximate != null) {
+            approximate.addRater(userId); // Switched meanwhile and may have missed this rater; adding one twice is harmless
+        } else if (ratings.size() >= ApproximateRatingStats.getThreshold()) {
+            switchToApproximateStats();
+        }
+    }
+
+    // Replaces the per-user maps with sketches; the histogram and trend score carry on unchanged
+    private synchronized void switchToApproximateStats() {
+        if (approximateStats != null) {
+            return; // Another writer switched first
+        }
+        ApproximateRatingStats approximate = new ApproximateRatingStats(ratingHistogram);
+        approximateStats = approximate; // Published before copying, so writers still using the old map add their rater too
+        for (int userId : userRatings.keySet()) {
+            approximate.addRater(userId);
+        }
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+    }
+
+    // Forgets every rating, e.g. before they are rebuilt from the rating history; not while others rate the title
+    public synchronized void clearUserRatings() {
+        WorkingSet.access(paging);
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+        trendScore = new TrendScore();
+        ratingHistogram = new RatingHistogram();
+        approximateStats = null;
+    }
+
+    /**
+     * Puts the title in approximate mode with statistics saved earlier (see RatingHistory's checkpoint),
+     * replacing its ratings. Not while others rate the title.
+     * @param trendRankKey The trend score's rank key when the statistics were saved.
+     */
+    public synchronized void restoreApproximateStats(ApproximateRatingStats stats, double trendRankKey) {
+        WorkingSet.access(paging);
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+        trendScore = new TrendScore();
+        trendScore.addRankKey(trendRankKey);
+        ratingHistogram = stats.getHistogram();
+        approximateStats = stats;
+    }
+
+    public boolean isApproximate() {
+        return approximateStats != null;
+    }
+
+    // Exact while the per-user map is kept, estimated afterwards
+    public long getDistinctRaters() {
+        // In exact mode the histogram holds one rating per user, so a paged-out movie isn't read back
+        return approximateStats != null ? approximateStats.getDistinctRaters() : ratingHistogram.getCount();
     }
 
     public double getAverageUserRating() {
-        return userRatings.values().stream().mapToInt(i -> i).average().orElse(0.0);
+        return ratingHistogram.getAverage();
     }
 
     // Getters
@@ -75,9 +171,27 @@ public class Movie {
     }
 
     public Map<Integer, Integer> getUserRatings() {
+        WorkingSet.access(paging);
         return userRatings;
     }
 
+    public long getRatingTime(int userId) {
+        WorkingSet.access(paging);
+        return ratingTimes.getOrDefault(userId, TrendScore.UNKNOWN_TIME);
+    }
+
+    public RatingHistogram getRatingHistogram() {
+        return ratingHistogram;
+    }
+
+    public ApproximateRatingStats getApproximateStats() {
+        return approximateStats;
+    }
+
+    public TrendScore getTrendScore() {
+        return trendScore;
+    }
+
     // Setters
     public void setTitle(String title) {
         this.title = title;
@@ -110,6 +224,41 @@ public class Movie {
         this.leadActor = leadActor;
     }
 
+    // Paging (see WorkingSet): the per-user maps are the part of a movie that grows
+
+    @Override
+    public long pagedBytes() {
+        return BYTES_PER_RATING * (long) userRatings.size();
+    }
+
+    @Override
+    public void writePaged(DataOutputStream out, WorkingSet.References refs) throws IOException {
+        out.writeInt(userRatings.size());
+        for (Map.Entry<Integer, Integer> entry : userRatings.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeByte(entry.getValue());
+            out.writeLong(ratingTimes.getOrDefault(entry.getKey(), TrendScore.UNKNOWN_TIME));
+        }
+    }
+
+    @Override
+    public void readPaged(DataInputStream in, WorkingSet.References refs) throws IOException {
+        int count = in.readInt();
+        userRatings = new ConcurrentHashMap<>(count * 2);
+        ratingTimes = new ConcurrentHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int userId = in.readInt();
+            userRatings.put(userId, (int) in.readByte());
+            ratingTimes.put(userId, in.readLong());
+        }
+    }
+
+    @Override
+    public void dropPaged() {
+        userRatings = null;
+        ratingTimes = null;
+    }
+
     @Override
     public String toString() {
         return "Movie{" +
@@ -0,0 +1,154 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of user ratings of a title, one bucket per score (1–10).
+ * Kept in sync with the userRatings map so count, mean, median and percentiles
+ * are answered from 10 counters instead of scanning every rating.
+ * Safe for concurrent writers without a lock: a bucket is updated with a CAS, and once two
+ * writers collide the counters are split over stripes (see Stripes). Readers don't block;
+ * count, mean and percentiles are computed from one pass over the buckets, so they always
+ * describe the same counts, but may miss updates still in flight.
+ */
+public class RatingHistogram {
+    public static final int BUCKETS = 10;
+    private static final int STRIDE = 16; // Longs per stripe: 10 buckets padded to 128 bytes, so stripes don't share cache lines
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); // counts[r - 1] = number of ratings equal to r
+    private volatile AtomicLongArray stripes; // Created the first time two writers collide
+
+    public void add(int rating) {
+        update(rating, 1);
+    }
+
+    // Adds count ratings of one score at once, e.g. when restoring saved counts
+    public void add(int rating, long count) {
+        update(rating, count);
+    }
+
+    public void remove(int rating) {
+        update(rating, -1);
+    }
+
+    /**
+     * A user changed their rating: move it between buckets (previous may be null for a first rating).
+     * The new score is counted before the old one leaves, so a bucket never goes below zero.
+     */
+    public void replace(Integer previous, int rating) {
+        add(rating);
+        if (previous != null) {
+            remove(previous);
+        }
+    }
+
+    // Adds another histogram of the same title, e.g. from another shard
+    public void merge(RatingHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.bucket(i);
+            if (count != 0) {
+                update(i + 1, count);
+            }
+        }
+    }
+
+    private void update(int rating, long delta) {
+        if (rating < 1 || rating > BUCKETS) {
+            throw new IllegalArgumentException("Vathmologia prepei na einai metaxy 1 kai 10");
+        }
+        int bucket = rating - 1;
+        AtomicLongArray split = stripes;
+        if (split == null) {
+            long count = counts.get(bucket);
+            if (counts.compareAndSet(bucket, count, count + delta)) {
+                return;
+            }
+            split = split(); // Another writer got there first: this title is contended
+        }
+        split.getAndAdd(Stripes.index() * STRIDE + bucket, delta);
+    }
+
+    private synchronized AtomicLongArray split() {
+        if (stripes == null) {
+            stripes = new AtomicLongArray(Stripes.COUNT * STRIDE);
+        }
+        return stripes;
+    }
+
+    private long bucket(int index) {
+        long count = counts.get(index);
+        AtomicLongArray split = stripes;
+        if (split != null) {
+            for (int s = 0; s < Stripes.COUNT; s++) {
+                count += split.get(s * STRIDE + index);
+            }
+        }
+        return count;
+    }
+
+    public int getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += bucket(i);
+        }
+        return (int) total;
+    }
+
+    public int getCount(int rating) {
+        return (int) bucket(rating - 1);
+    }
+
+    public double getAverage() {
+        long total = 0;
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = bucket(i);
+            total += count;
+            sum += count * (i + 1);
+        }
+        return total == 0 ? 0.0 : (double) sum / total;
+    }
+
+    /**
+     * Nearest-rank percentile of the ratings.
+     * @param percent Between 0 and 100.
+     * @return The rating at that percentile, or 0 when there are no ratings.
+     */
+    public int getPercentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = bucket(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("To pososto prepei na einai metaxy 0 kai 100");
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i + 1;
+            }
+        }
+        return BUCKETS;
+    }
+
+    public int getMedian() {
+        return getPercentile(50);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RatingHistogram{");
+        for (int i = 0; i < BUCKETS; i++) {
+            sb.append(i + 1).append('=').append(bucket(i));
+            sb.append(i < BUCKETS - 1 ? ", " : "}");
+        }
+        return sb.toString();
+    }
+}
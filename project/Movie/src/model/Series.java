@@ -1,39 +1,142 @@
 package model;
 
+import storage.WorkingSet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Series implements WorkingSet.Pageable {
+    // Estimated heap sizes used for paging
+    private static final int BYTES_PER_RATING = 128;
+    private static final int BYTES_PER_SEASON = 64;
+    private static final int BYTES_PER_EPISODE = 64;
 
-public class Series {
-    private static int counter = 1;
     private final int id;
     private String title;
     private String genre;
-    private List<Season> seasons;
-    private Map<Integer, Integer> userRatings;
+    private List<Season> seasons; // null while paged out, like the rating maps
+    private volatile Map<Integer, Integer> userRatings;
+    private volatile Map<Integer, Long> ratingTimes; // userId -> epoch second of the rating (0 = unknown)
+    private TrendScore trendScore;
+    private RatingHistogram ratingHistogram;
+    private volatile ApproximateRatingStats approximateStats; // Set once the title has too many ratings for the per-user maps
+    private final WorkingSet.Entry paging = new WorkingSet.Entry(this);
+    // Summary of the seasons while they are paged out, so tables and rankings don't read them back
+    private int pagedOutSeasons;
+    private int pagedOutEpisodes;
+    private int pagedOutFirstYear;
 
     public Series(String title, String genre) {
-        this.id = counter++;
+        this(IdAllocator.SERIES.next(), title, genre);
+    }
+
+    // Re-creates a series with the id it had before, e.g. when replaying the write-ahead log
+    public Series(int id, String title, String genre) {
+        IdAllocator.SERIES.observe(id);
+        this.id = id;
         this.title = title;
         this.genre = genre;
         this.seasons = new ArrayList<>();
-        this.userRatings = new HashMap<>();
+        this.userRatings = new ConcurrentHashMap<>();
+        this.ratingTimes = new ConcurrentHashMap<>();
+        this.trendScore = new TrendScore();
+        this.ratingHistogram = new RatingHistogram();
     }
 
     public void addSeason(Season season) {
+        WorkingSet.access(paging);
         seasons.add(season);
     }
 
     public void addUserRating(int userId, int rating) {
+        addUserRating(userId, rating, Instant.now().getEpochSecond());
+    }
+
+    // Can be called from several threads at once without a lock while paging is off (see WorkingSet)
+    public void addUserRating(int userId, int rating, long epochSecond) {
         if (rating < 1 || rating > 10) {
             throw new IllegalArgumentException("Vathmologia prepei na einai metaxy 1 kai 10");
         }
-        userRatings.put(userId, rating);
+        WorkingSet.access(paging);
+        trendScore.record(rating, epochSecond);
+        ApproximateRatingStats approximate = approximateStats;
+        if (approximate != null) {
+            approximate.add(userId, rating); // No per-user maps in approximate mode
+            return;
+        }
+        Map<Integer, Integer> ratings = userRatings;
+        // Counted before it can be replaced, so a concurrent change by the same user never empties a bucket twice
+        ratingHistogram.add(rating);
+        Integer previous = ratings.put(userId, rating);
+        if (previous != null) {
+            ratingHistogram.remove(previous); // An overwritten score leaves its old bucket
+        }
+        ratingTimes.put(userId, epochSecond);
+        approximate = approximateStats;
+        if (approximate != null) {
+            approximate.addRater(userId); // Switched meanwhile and may have missed this rater; adding one twice is harmless
+        } else if (ratings.size() >= ApproximateRatingStats.getThreshold()) {
+            switchToApproximateStats();
+        }
+    }
+
+    // Replaces the per-user maps with sketches; the histogram and trend score carry on unchanged
+    private synchronized void switchToApproximateStats() {
+        if (approximateStats != null) {
+            return; // Another writer switched first
+        }
+        ApproximateRatingStats approximate = new ApproximateRatingStats(ratingHistogram);
+        approximateStats = approximate; // Published before copying, so writers still using the old map add their rater too
+        for (int userId : userRatings.keySet()) {
+            approximate.addRater(userId);
+        }
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+    }
+
+    // Forgets every rating, e.g. before they are rebuilt from the rating history; not while others rate the title
+    public synchronized void clearUserRatings() {
+        WorkingSet.access(paging);
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+        trendScore = new TrendScore();
+        ratingHistogram = new RatingHistogram();
+        approximateStats = null;
+    }
+
+    /**
+     * Puts the title in approximate mode with statistics saved earlier (see RatingHistory's checkpoint),
+     * replacing its ratings. Not while others rate the title.
+     * @param trendRankKey The trend score's rank key when the statistics were saved.
+     */
+    public synchronized void restoreApproximateStats(ApproximateRatingStats stats, double trendRankKey) {
+        WorkingSet.access(paging);
+        userRatings = new ConcurrentHashMap<>();
+        ratingTimes = new ConcurrentHashMap<>();
+        trendScore = new TrendScore();
+        trendScore.addRankKey(trendRankKey);
+        ratingHistogram = stats.getHistogram();
+        approximateStats = stats;
+    }
+
+    public boolean isApproximate() {
+        return approximateStats != null;
+    }
+
+    // Exact while the per-user map is kept, estimated afterwards
+    public long getDistinctRaters() {
+        // In exact mode the histogram holds one rating per user, so a paged-out series isn't read back
+        return approximateStats != null ? approximateStats.getDistinctRaters() : ratingHistogram.getCount();
     }
 
     public double getAverageUserRating() {
-        return userRatings.values().stream().mapToInt(i -> i).average().orElse(0.0);
+        return ratingHistogram.getAverage();
     }
 
     // Getters
@@ -50,13 +153,46 @@ public class Series {
     }
 
     public List<Season> getSeasons() {
+        WorkingSet.access(paging);
         return seasons;
     }
 
+    public int getSeasonCount() {
+        List<Season> resident = seasons;
+        return resident != null ? resident.size() : pagedOutSeasons;
+    }
+
+    // Year of the first season, or 0 without seasons
+    public int getFirstSeasonYear() {
+        List<Season> resident = seasons;
+        if (resident == null) {
+            return pagedOutFirstYear;
+        }
+        return resident.isEmpty() ? 0 : resident.get(0).getYear();
+    }
+
     public Map<Integer, Integer> getUserRatings() {
+        WorkingSet.access(paging);
         return userRatings;
     }
 
+    public long getRatingTime(int userId) {
+        WorkingSet.access(paging);
+        return ratingTimes.getOrDefault(userId, TrendScore.UNKNOWN_TIME);
+    }
+
+    public RatingHistogram getRatingHistogram() {
+        return ratingHistogram;
+    }
+
+    public ApproximateRatingStats getApproximateStats() {
+        return approximateStats;
+    }
+
+    public TrendScore getTrendScore() {
+        return trendScore;
+    }
+
     // Setters
     public void setTitle(String title) {
         this.title = title;
@@ -68,20 +204,91 @@ public class Series {
 
     // Inside your Series.java class
     public int getTotalEpisodes() {
+        List<Season> resident = seasons;
+        if (resident == null) {
+            return pagedOutEpisodes;
+        }
         int totalEpisodes = 0;
-        for (Season season : this.getSeasons()) { // Assuming getSeasons() returns a List<Season>
+        for (Season season : resident) { // Assuming getSeasons() returns a List<Season>
             totalEpisodes += season.getEpisodes().size(); // Assuming getEpisodes() returns a List<Episode>
         }
         return totalEpisodes;
     }
 
+    // Paging (see WorkingSet): the per-user maps and the seasons with their episodes
+
+    @Override
+    public long pagedBytes() {
+        long bytes = BYTES_PER_RATING * (long) userRatings.size();
+        for (Season season : seasons) {
+            bytes += BYTES_PER_SEASON + BYTES_PER_EPISODE * (long) season.getEpisodes().size();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void writePaged(DataOutputStream out, WorkingSet.References refs) throws IOException {
+        out.writeInt(userRatings.size());
+        for (Map.Entry<Integer, Integer> entry : userRatings.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeByte(entry.getValue());
+            out.writeLong(ratingTimes.getOrDefault(entry.getKey(), TrendScore.UNKNOWN_TIME));
+        }
+        out.writeInt(seasons.size());
+        for (Season season : seasons) {
+            out.writeInt(season.getSeasonNumber());
+            out.writeInt(season.getYear());
+            out.writeInt(season.getEpisodes().size());
+            for (Episode episode : season.getEpisodes()) {
+                out.writeInt(episode.getId());
+                out.writeInt(episode.getDuration());
+                out.writeInt(refs.idOf(episode.getDirector()));
+                out.writeDouble(episode.getImdbRating());
+                out.writeInt(refs.idOf(episode.getLeadActor()));
+            }
+        }
+    }
+
+    @Override
+    public void readPaged(DataInputStream in, WorkingSet.References refs) throws IOException {
+        int count = in.readInt();
+        userRatings = new ConcurrentHashMap<>(count * 2);
+        ratingTimes = new ConcurrentHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int userId = in.readInt();
+            userRatings.put(userId, (int) in.readByte());
+            ratingTimes.put(userId, in.readLong());
+        }
+        int seasonCount = in.readInt();
+        seasons = new ArrayList<>(seasonCount);
+        for (int i = 0; i < seasonCount; i++) {
+            Season season = new Season(in.readInt(), in.readInt());
+            int episodes = in.readInt();
+            for (int j = 0; j < episodes; j++) {
+                season.addEpisode(new Episode(in.readInt(), in.readInt(), refs.get(in.readInt(), Director.class),
+                        in.readDouble(), refs.get(in.readInt(), Actor.class)));
+            }
+            seasons.add(season);
+        }
+    }
+
+    @Override
+    public void dropPaged() {
+        pagedOutSeasons = seasons.size();
+        pagedOutEpisodes = getTotalEpisodes();
+        pagedOutFirstYear = seasons.isEmpty() ? 0 : seasons.get(0).getYear();
+        userRatings = null;
+        ratingTimes = null;
+        seasons = null;
+    }
+
     @Override
     public String toString() {
         return "Series{" +
                 "id=" + id +
                 ", titlos='" + title + '\'' +
                 ", eidos='" + genre + '\'' +
-                ", season_count=" + seasons.size() +
+                ", season_count=" + getSeasonCount() +
                 ", meso_user_rating=" + getAverageUserRating() +
                 '}';
     }
@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * Stripe a thread updates in counters that are split LongAdder-style: a title starts with one
+ * set of counters, and once two writers collide on it each stripe gets its own cache line,
+ * so threads rating the same hot title don't keep invalidating each other's caches.
+ * Readers add up the stripes.
+ */
+final class Stripes {
+    // A power of two, about twice the processors so threads rarely share a stripe
+    static final int COUNT = Math.min(64, Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    private static final int SHIFT = 64 - Integer.numberOfTrailingZeros(COUNT);
+
+    private Stripes() {
+    }
+
+    // Fixed per thread; threads that share a stripe are still correct, they just contend
+    static int index() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L; // Spreads consecutive thread ids
+        return COUNT == 1 ? 0 : (int) (hash >>> SHIFT);
+    }
+}
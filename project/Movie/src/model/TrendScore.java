@@ -0,0 +1,99 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exponentially decayed rating activity of a title ("trending" score).
+ * Each rating is weighted by exp(lambda * (t - LANDMARK)) (forward decay), so the stored value
+ * never has to be decayed as time passes and titles stay directly comparable.
+ * The sum is kept in log space so the weights cannot overflow. O(1) per rating.
+ * Safe for concurrent writers without a lock: the score is updated with a CAS, and once two
+ * writers collide each stripe keeps a partial sum that readers combine (see Stripes).
+ */
+public class TrendScore {
+    public static final long UNKNOWN_TIME = 0; // Ratings from files without timestamps
+    public static final long HALF_LIFE_SECONDS = 7L * 24 * 60 * 60; // A rating loses half its weight every week
+
+    private static final double LAMBDA = Math.log(2) / HALF_LIFE_SECONDS;
+    private static final long LANDMARK = 1_700_000_000L; // Fixed reference point (Nov 2023), in epoch seconds
+
+    private static final int STRIDE = 8; // Longs per stripe, one cache line each
+    private static final long EMPTY = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY); // No ratings yet
+
+    private final AtomicLong logScore = new AtomicLong(EMPTY); // Bits of the log of the sum
+    private volatile AtomicLongArray stripes; // Created the first time two writers collide
+
+    public void record(int rating, long epochSecond) {
+        if (epochSecond == UNKNOWN_TIME) {
+            return; // Can't place it in time, so it doesn't count towards trending
+        }
+        add(Math.log(rating) + LAMBDA * (epochSecond - LANDMARK));
+    }
+
+    // Adds a score saved earlier with getRankKey, e.g. when restoring a snapshot
+    public void addRankKey(double rankKey) {
+        add(rankKey);
+    }
+
+    private void add(double logWeight) {
+        AtomicLongArray split = stripes;
+        if (split == null) {
+            long bits = logScore.get();
+            if (logScore.compareAndSet(bits, Double.doubleToRawLongBits(logAdd(Double.longBitsToDouble(bits), logWeight)))) {
+                return;
+            }
+            split = split(); // Another writer got there first: this title is contended
+        }
+        int index = Stripes.index() * STRIDE;
+        long bits;
+        do {
+            bits = split.get(index);
+        } while (!split.compareAndSet(index, bits, Double.doubleToRawLongBits(logAdd(Double.longBitsToDouble(bits), logWeight))));
+    }
+
+    private synchronized AtomicLongArray split() {
+        if (stripes == null) {
+            AtomicLongArray split = new AtomicLongArray(Stripes.COUNT * STRIDE);
+            for (int s = 0; s < Stripes.COUNT; s++) {
+                split.set(s * STRIDE, EMPTY);
+            }
+            stripes = split;
+        }
+        return stripes;
+    }
+
+    // log(e^a + e^b) without leaving log space
+    private static double logAdd(double a, double b) {
+        if (a == Double.NEGATIVE_INFINITY) {
+            return b;
+        }
+        if (b == Double.NEGATIVE_INFINITY) {
+            return a;
+        }
+        double max = Math.max(a, b);
+        double min = Math.min(a, b);
+        return max + Math.log1p(Math.exp(min - max));
+    }
+
+    // Ordering key for rankings; larger means trending more. Doesn't change as time passes.
+    public double getRankKey() {
+        double score = Double.longBitsToDouble(logScore.get());
+        AtomicLongArray split = stripes;
+        if (split != null) {
+            for (int s = 0; s < Stripes.COUNT; s++) {
+                score = logAdd(score, Double.longBitsToDouble(split.get(s * STRIDE)));
+            }
+        }
+        return score;
+    }
+
+    // Decayed score as seen at the given time
+    public double valueAt(long epochSecond) {
+        double score = getRankKey();
+        if (score == Double.NEGATIVE_INFINITY) {
+            return 0.0;
+        }
+        return Math.exp(score - LAMBDA * (epochSecond - LANDMARK));
+    }
+}
@@ -1,6 +1,10 @@
 package model;
 
+import java.util.regex.Pattern;
+
 public class User {
+    // Compiled once; String.matches would compile the regex again for every user
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$");
 
     private int id;
     private String firstName;
@@ -9,7 +13,7 @@ public class User {
     private String email;
 
     public User(String firstName, String lastName, String username, String email) {
-        if (!email.matches("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$")) {
+        if (!isValidEmail(email)) {
             throw new IllegalArgumentException("Lathos morfi email");
         }
 
@@ -65,12 +69,16 @@ public class User {
     }
 
     public void setEmail(String email) {
-        if (!email.matches("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$")) {
+        if (!isValidEmail(email)) {
             throw new IllegalArgumentException("Lathos morfi email");
         }
         this.email = email;
     }
 
+    public static boolean isValidEmail(String email) {
+        return email != null && EMAIL_PATTERN.matcher(email).matches();
+    }
+
     public boolean verifyCredentials(String username, String email) {
         return this.username.equals(username) && this.email.equals(email);
     }
@@ -0,0 +1,309 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * B+tree from unique byte[] keys (compared unsigned, byte by byte) to long values,
+ * stored one node per page of a BufferPool. Leaves are linked left to right, so a range
+ * scan reads the path to its first key and then only the leaves it covers.
+ * Removal does not merge underfull nodes; they are reused by later inserts.
+ * Not thread-safe.
+ */
+public class BPlusTree {
+    public static final int MAX_KEY_BYTES = 512; // Keeps at least a handful of keys per page
+    public static final int NO_PAGE = -1;
+
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final int HEADER_BYTES = 7; // type, key count, next leaf / first child
+
+    public interface Visitor {
+        // Return false to stop the scan
+        boolean visit(byte[] key, long value);
+    }
+
+    private static class Node {
+        final boolean leaf;
+        final List<byte[]> keys = new ArrayList<>();
+        final List<Long> values = new ArrayList<>();     // Leaf only, one per key
+        final List<Integer> children = new ArrayList<>(); // Internal only, keys + 1
+        int next = NO_PAGE;                               // Leaf only
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        int encodedSize() {
+            int size = HEADER_BYTES;
+            for (byte[] key : keys) {
+                size += 2 + key.length + (leaf ? 8 : 4);
+            }
+            return size;
+        }
+    }
+
+    // Result of a node split: the separator and the new right sibling
+    private static class Split {
+        final byte[] key;
+        final int right;
+
+        Split(byte[] key, int right) {
+            this.key = key;
+            this.right = right;
+        }
+    }
+
+    private final BufferPool pool;
+    private int root;
+
+    /**
+     * @param root Root page of an existing tree, or NO_PAGE to create an empty tree.
+     */
+    public BPlusTree(BufferPool pool, int root) throws IOException {
+        this.pool = pool;
+        if (root == NO_PAGE) {
+            BufferPool.Page page = pool.allocate();
+            try {
+                encode(new Node(true), page);
+            } finally {
+                pool.unpin(page);
+            }
+            this.root = page.getNumber();
+        } else {
+            this.root = root;
+        }
+    }
+
+    // Changes when the root splits; the owner stores it to reopen the tree
+    public int getRoot() {
+        return root;
+    }
+
+    public void insert(byte[] key, long value) throws IOException {
+        if (key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("To kleidi einai poly megalo: " + key.length + " bytes");
+        }
+        Split split = insert(root, key, value);
+        if (split != null) {
+            Node newRoot = new Node(false);
+            newRoot.keys.add(split.key);
+            newRoot.children.add(root);
+            newRoot.children.add(split.right);
+            root = writeNew(newRoot);
+        }
+    }
+
+    public Long get(byte[] key) throws IOException {
+        Node leaf = read(findLeaf(key));
+        int i = lowerBound(leaf.keys, key);
+        return i < leaf.keys.size() && Arrays.equals(leaf.keys.get(i), key) ? leaf.values.get(i) : null;
+    }
+
+    public boolean remove(byte[] key) throws IOException {
+        int pageNo = findLeaf(key);
+        Node leaf = read(pageNo);
+        int i = lowerBound(leaf.keys, key);
+        if (i == leaf.keys.size() || !Arrays.equals(leaf.keys.get(i), key)) {
+            return false;
+        }
+        leaf.keys.remove(i);
+        leaf.values.remove(i);
+        write(pageNo, leaf);
+        return true;
+    }
+
+    /**
+     * Visits keys from the first key >= from, in order, until the visitor stops or the tree ends.
+     */
+    public void scan(byte[] from, Visitor visitor) throws IOException {
+        int pageNo = findLeaf(from);
+        Node leaf = read(pageNo);
+        int i = lowerBound(leaf.keys, from);
+        while (true) {
+            for (; i < leaf.keys.size(); i++) {
+                if (!visitor.visit(leaf.keys.get(i), leaf.values.get(i))) {
+                    return;
+                }
+            }
+            if (leaf.next == NO_PAGE) {
+                return;
+            }
+            leaf = read(leaf.next);
+            i = 0;
+        }
+    }
+
+    private Split insert(int pageNo, byte[] key, long value) throws IOException {
+        Node node = read(pageNo);
+        if (node.leaf) {
+            int i = lowerBound(node.keys, key);
+            if (i < node.keys.size() && Arrays.equals(node.keys.get(i), key)) {
+                node.values.set(i, value);
+            } else {
+                node.keys.add(i, key);
+                node.values.add(i, value);
+            }
+        } else {
+            int i = childIndex(node.keys, key);
+            Split split = insert(node.children.get(i), key, value);
+            if (split == null) {
+                return null;
+            }
+            node.keys.add(i, split.key);
+            node.children.add(i + 1, split.right);
+        }
+
+        if (node.encodedSize() <= PageFile.PAGE_SIZE) {
+            write(pageNo, node);
+            return null;
+        }
+        return split(pageNo, node);
+    }
+
+    private Split split(int pageNo, Node node) throws IOException {
+        int mid = node.keys.size() / 2;
+        Node right = new Node(node.leaf);
+        byte[] separator;
+        if (node.leaf) {
+            right.keys.addAll(node.keys.subList(mid, node.keys.size()));
+            right.values.addAll(node.values.subList(mid, node.values.size()));
+            node.keys.subList(mid, node.keys.size()).clear();
+            node.values.subList(mid, node.values.size()).clear();
+            separator = right.keys.get(0);
+        } else {
+            separator = node.keys.get(mid);
+            right.keys.addAll(node.keys.subList(mid + 1, node.keys.size()));
+            right.children.addAll(node.children.subList(mid + 1, node.children.size()));
+            node.keys.subList(mid, node.keys.size()).clear();
+            node.children.subList(mid + 1, node.children.size()).clear();
+        }
+        right.next = node.next;
+        int rightPage = writeNew(right);
+        if (node.leaf) {
+            node.next = rightPage;
+        }
+        write(pageNo, node);
+        return new Split(separator, rightPage);
+    }
+
+    private int findLeaf(byte[] key) throws IOException {
+        int pageNo = root;
+        Node node = read(pageNo);
+        while (!node.leaf) {
+            pageNo = node.children.get(childIndex(node.keys, key));
+            node = read(pageNo);
+        }
+        return pageNo;
+    }
+
+    // First index whose key is >= key
+    private static int lowerBound(List<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Child to descend into: keys equal to a separator live in the right subtree
+    private static int childIndex(List<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(mid), key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Node read(int pageNo) throws IOException {
+        BufferPool.Page page = pool.pin(pageNo);
+        try {
+            return decode(page.getData());
+        } finally {
+            pool.unpin(page);
+        }
+    }
+
+    private void write(int pageNo, Node node) throws IOException {
+        BufferPool.Page page = pool.pin(pageNo);
+        try {
+            encode(node, page);
+        } finally {
+            pool.unpin(page);
+        }
+    }
+
+    private int writeNew(Node node) throws IOException {
+        BufferPool.Page page = pool.allocate();
+        try {
+            encode(node, page);
+        } finally {
+            pool.unpin(page);
+        }
+        return page.getNumber();
+    }
+
+    private static Node decode(ByteBuffer data) {
+        Node node = new Node(data.get(0) == LEAF);
+        int count = data.getShort(1);
+        int link = data.getInt(3);
+        int offset = HEADER_BYTES;
+        if (node.leaf) {
+            node.next = link;
+        } else {
+            node.children.add(link);
+        }
+        for (int i = 0; i < count; i++) {
+            int length = data.getShort(offset);
+            byte[] key = new byte[length];
+            data.get(offset + 2, key);
+            offset += 2 + length;
+            node.keys.add(key);
+            if (node.leaf) {
+                node.values.add(data.getLong(offset));
+                offset += 8;
+            } else {
+                node.children.add(data.getInt(offset));
+                offset += 4;
+            }
+        }
+        return node;
+    }
+
+    private static void encode(Node node, BufferPool.Page page) {
+        ByteBuffer data = page.getData();
+        data.put(0, node.leaf ? LEAF : INTERNAL);
+        data.putShort(1, (short) node.keys.size());
+        data.putInt(3, node.leaf ? node.next : node.children.get(0));
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < node.keys.size(); i++) {
+            byte[] key = node.keys.get(i);
+            data.putShort(offset, (short) key.length);
+            data.put(offset + 2, key);
+            offset += 2 + key.length;
+            if (node.leaf) {
+                data.putLong(offset, node.values.get(i));
+                offset += 8;
+            } else {
+                data.putInt(offset, node.children.get(i + 1));
+                offset += 4;
+            }
+        }
+        page.markDirty();
+    }
+}
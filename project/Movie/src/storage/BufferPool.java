@@ -0,0 +1,131 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps up to a fixed number of pages of a PageFile in memory.
+ * A page is pinned while in use and can't be evicted then; when the pool is full the least
+ * recently used unpinned page is evicted, and written back first if it was changed.
+ */
+public class BufferPool {
+
+    public static class Page {
+        private final int number;
+        private final ByteBuffer data;
+        private int pins;
+        private boolean dirty;
+
+        Page(int number) {
+            this.number = number;
+            this.data = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        // Use absolute get/put only; the buffer's position is shared
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        public void markDirty() {
+            dirty = true;
+        }
+    }
+
+    private final PageFile file;
+    private final int capacity;
+    private final LinkedHashMap<Integer, Page> frames = new LinkedHashMap<>(16, 0.75f, true); // Access order = LRU first
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity Maximum number of pages kept in memory.
+     */
+    public BufferPool(PageFile file, int capacity) {
+        if (capacity < 8) {
+            throw new IllegalArgumentException("To buffer pool prepei na exei toulaxiston 8 selides");
+        }
+        this.file = file;
+        this.capacity = capacity;
+    }
+
+    // Returns the page pinned; call unpin when done with it
+    public synchronized Page pin(int pageNo) throws IOException {
+        Page page = frames.get(pageNo);
+        if (page != null) {
+            hits++;
+        } else {
+            misses++;
+            evictIfFull();
+            page = new Page(pageNo);
+            file.read(pageNo, page.data);
+            frames.put(pageNo, page);
+        }
+        page.pins++;
+        return page;
+    }
+
+    // A new, zeroed page at the end of the file, pinned
+    public synchronized Page allocate() throws IOException {
+        evictIfFull();
+        Page page = new Page(file.allocate());
+        page.dirty = true;
+        page.pins++;
+        frames.put(page.number, page);
+        return page;
+    }
+
+    public synchronized void unpin(Page page) {
+        if (page.pins == 0) {
+            throw new IllegalStateException("H selida " + page.number + " den einai desmeumeni");
+        }
+        page.pins--;
+    }
+
+    // Writes every changed page and syncs the file
+    public synchronized void flush() throws IOException {
+        for (Page page : frames.values()) {
+            if (page.dirty) {
+                file.write(page.number, page.data);
+                page.dirty = false;
+            }
+        }
+        file.sync();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void evictIfFull() throws IOException {
+        if (frames.size() < capacity) {
+            return;
+        }
+        Iterator<Map.Entry<Integer, Page>> it = frames.entrySet().iterator();
+        while (it.hasNext()) {
+            Page page = it.next().getValue();
+            if (page.pins == 0) {
+                if (page.dirty) {
+                    file.write(page.number, page.data);
+                }
+                it.remove();
+                return;
+            }
+        }
+        throw new IllegalStateException("Oles oi selides tou buffer pool einai desmeumenes");
+    }
+}
@@ -0,0 +1,313 @@
+package storage;
+
+import utils.Collation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Page-based movie store: records live in slotted heap pages, and three B+trees index them
+ * by normalized title, by year and by IMDb rating. Lookups and range scans read only the
+ * index pages on their path and the heap pages of the records they return, through a
+ * bounded BufferPool, so the catalog on disk can be much larger than the heap.
+ * Page 0 holds the header (tree roots, current heap page, record count, id checksum).
+ * Not thread-safe.
+ */
+public class CatalogStore implements Closeable {
+    private static final int MAGIC = 0x4D565354; // "MVST"
+    // Header page layout
+    private static final int HEADER_PAGE = 0;
+    private static final int H_MAGIC = 0;
+    private static final int H_TITLE_ROOT = 4;
+    private static final int H_YEAR_ROOT = 8;
+    private static final int H_IMDB_ROOT = 12;
+    private static final int H_HEAP_PAGE = 16;
+    private static final int H_COUNT = 20;
+    private static final int H_ID_CHECKSUM = 24;
+    // Heap page layout: slot count, start of record data, then one (offset, length) slot per record
+    private static final int SLOT_AREA = 4;
+    private static final int SLOT_BYTES = 4;
+    private static final int TITLE_KEY_BYTES = 256; // Longer titles are indexed by their start
+
+    private final PageFile file;
+    private final BufferPool pool;
+    private final BPlusTree titleIndex;
+    private final BPlusTree yearIndex;
+    private final BPlusTree imdbIndex;
+    private int heapPage;
+    private int recordCount;
+    private long idChecksum; // Sum of idHash over the stored movies, to tell whether they are the loaded ones
+
+    /**
+     * Opens a store file, creating it if it doesn't exist.
+     * @param path The store file.
+     * @param cachePages Pages kept in memory (PageFile.PAGE_SIZE bytes each).
+     */
+    public CatalogStore(Path path, int cachePages) throws IOException {
+        this.file = new PageFile(path);
+        this.pool = new BufferPool(file, cachePages);
+        if (file.getPageCount() == 0) {
+            BufferPool.Page header = pool.allocate(); // Page 0
+            pool.unpin(header);
+            titleIndex = new BPlusTree(pool, BPlusTree.NO_PAGE);
+            yearIndex = new BPlusTree(pool, BPlusTree.NO_PAGE);
+            imdbIndex = new BPlusTree(pool, BPlusTree.NO_PAGE);
+            heapPage = BPlusTree.NO_PAGE;
+            writeHeader();
+        } else {
+            BufferPool.Page header = pool.pin(HEADER_PAGE);
+            try {
+                ByteBuffer data = header.getData();
+                if (data.getInt(H_MAGIC) != MAGIC) {
+                    throw new IOException("To arxeio " + path + " den einai katalogos");
+                }
+                titleIndex = new BPlusTree(pool, data.getInt(H_TITLE_ROOT));
+                yearIndex = new BPlusTree(pool, data.getInt(H_YEAR_ROOT));
+                imdbIndex = new BPlusTree(pool, data.getInt(H_IMDB_ROOT));
+                heapPage = data.getInt(H_HEAP_PAGE);
+                recordCount = data.getInt(H_COUNT);
+                idChecksum = data.getLong(H_ID_CHECKSUM);
+            } finally {
+                pool.unpin(header);
+            }
+        }
+    }
+
+    /**
+     * Stores a movie and adds it to the three indexes.
+     * @return The record id (heap page and slot).
+     */
+    public long insert(MovieRecord record) throws IOException {
+        long rid = appendToHeap(encode(record));
+        titleIndex.insert(titleKey(record.getTitle(), rid), rid);
+        yearIndex.insert(concat(intKey(record.getYear()), longBytes(rid)), rid);
+        imdbIndex.insert(concat(doubleKey(record.getImdbRating()), longBytes(rid)), rid);
+        recordCount++;
+        idChecksum += idHash(record.getId());
+        writeHeader();
+        return rid;
+    }
+
+    public MovieRecord read(long rid) throws IOException {
+        BufferPool.Page page = pool.pin((int) (rid >>> 16));
+        try {
+            ByteBuffer data = page.getData();
+            int slot = (int) (rid & 0xFFFF);
+            int offset = data.getShort(SLOT_AREA + slot * SLOT_BYTES) & 0xFFFF;
+            int length = data.getShort(SLOT_AREA + slot * SLOT_BYTES + 2) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            data.get(offset, bytes);
+            return decode(bytes);
+        } finally {
+            pool.unpin(page);
+        }
+    }
+
+    /**
+     * Movies whose normalized title starts with the normalized prefix, in title order.
+     * @param limit Maximum number of results; the scan stops there.
+     */
+    public List<MovieRecord> findByTitlePrefix(String prefix, int limit) throws IOException {
+        byte[] from = Collation.normalize(prefix).getBytes(StandardCharsets.UTF_8);
+        return collect(titleIndex, from, key -> startsWith(key, from), limit);
+    }
+
+    // Movies with from <= year <= to, in year order
+    public List<MovieRecord> findByYear(int from, int to, int limit) throws IOException {
+        byte[] last = intKey(to);
+        return collect(yearIndex, intKey(from), key -> Arrays.compareUnsigned(key, 0, 4, last, 0, 4) <= 0, limit);
+    }
+
+    // Movies with min <= IMDb rating <= max, lowest first
+    public List<MovieRecord> findByImdb(double min, double max, int limit) throws IOException {
+        byte[] last = doubleKey(max);
+        return collect(imdbIndex, doubleKey(min), key -> Arrays.compareUnsigned(key, 0, 8, last, 0, 8) <= 0, limit);
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Order-independent checksum of the stored movie ids. A store holds the same movies as a
+     * catalog if the sum of idHash over the catalog's ids matches it (and so does the size).
+     */
+    public long getIdChecksum() {
+        return idChecksum;
+    }
+
+    public static long idHash(int id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // Page reads from disk so far; a lookup should add only a few
+    public long getPagesRead() {
+        return file.getPagesRead();
+    }
+
+    public String getStats() {
+        return String.format("%d records, %d pages, %d pages read, buffer pool %d hits / %d misses (%d pages)",
+                recordCount, file.getPageCount(), file.getPagesRead(), pool.getHits(), pool.getMisses(), pool.getCapacity());
+    }
+
+    public void flush() throws IOException {
+        pool.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        file.close();
+    }
+
+    private interface KeyCondition {
+        boolean matches(byte[] key);
+    }
+
+    private List<MovieRecord> collect(BPlusTree index, byte[] from, KeyCondition inRange, int limit) throws IOException {
+        List<Long> rids = new ArrayList<>();
+        index.scan(from, (key, rid) -> {
+            if (rids.size() >= limit || !inRange.matches(key)) {
+                return false;
+            }
+            rids.add(rid);
+            return true;
+        });
+        List<MovieRecord> records = new ArrayList<>(rids.size());
+        for (long rid : rids) {
+            records.add(read(rid));
+        }
+        return records;
+    }
+
+    private long appendToHeap(byte[] record) throws IOException {
+        if (record.length > PageFile.PAGE_SIZE - SLOT_AREA - SLOT_BYTES) {
+            throw new IllegalArgumentException("H eggrafi einai poly megali gia mia selida: " + record.length + " bytes");
+        }
+        if (heapPage != BPlusTree.NO_PAGE) {
+            BufferPool.Page page = pool.pin(heapPage);
+            try {
+                Long rid = tryAppend(page, record);
+                if (rid != null) {
+                    return rid;
+                }
+            } finally {
+                pool.unpin(page);
+            }
+        }
+        BufferPool.Page page = pool.allocate();
+        try {
+            page.getData().putShort(0, (short) 0);
+            page.getData().putShort(2, (short) PageFile.PAGE_SIZE);
+            heapPage = page.getNumber();
+            return tryAppend(page, record);
+        } finally {
+            pool.unpin(page);
+        }
+    }
+
+    // Records fill the page from the end, slots from the start; null if the page is full
+    private static Long tryAppend(BufferPool.Page page, byte[] record) {
+        ByteBuffer data = page.getData();
+        int slots = data.getShort(0);
+        int dataStart = data.getShort(2) & 0xFFFF;
+        int slotEnd = SLOT_AREA + (slots + 1) * SLOT_BYTES;
+        if (dataStart - record.length < slotEnd || slots == 0xFFFF) {
+            return null;
+        }
+        int offset = dataStart - record.length;
+        data.put(offset, record);
+        data.putShort(SLOT_AREA + slots * SLOT_BYTES, (short) offset);
+        data.putShort(SLOT_AREA + slots * SLOT_BYTES + 2, (short) record.length);
+        data.putShort(0, (short) (slots + 1));
+        data.putShort(2, (short) offset);
+        page.markDirty();
+        return ((long) page.getNumber() << 16) | slots;
+    }
+
+    private void writeHeader() throws IOException {
+        BufferPool.Page header = pool.pin(HEADER_PAGE);
+        try {
+            ByteBuffer data = header.getData();
+            data.putInt(H_MAGIC, MAGIC);
+            data.putInt(H_TITLE_ROOT, titleIndex.getRoot());
+            data.putInt(H_YEAR_ROOT, yearIndex.getRoot());
+            data.putInt(H_IMDB_ROOT, imdbIndex.getRoot());
+            data.putInt(H_HEAP_PAGE, heapPage);
+            data.putInt(H_COUNT, recordCount);
+            data.putLong(H_ID_CHECKSUM, idChecksum);
+            header.markDirty();
+        } finally {
+            pool.unpin(header);
+        }
+    }
+
+    private static byte[] encode(MovieRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(record.getId());
+            out.writeUTF(record.getTitle());
+            out.writeInt(record.getYear());
+            out.writeUTF(record.getGenre());
+            out.writeInt(record.getDuration());
+            out.writeUTF(record.getDirectorName());
+            out.writeDouble(record.getImdbRating());
+            out.writeUTF(record.getLeadActorName());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static MovieRecord decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return new MovieRecord(in.readInt(), in.readUTF(), in.readInt(), in.readUTF(), in.readInt(),
+                    in.readUTF(), in.readDouble(), in.readUTF());
+        }
+    }
+
+    // Normalized title (cut to TITLE_KEY_BYTES), a 0 byte so shorter titles sort first, then the record id
+    private static byte[] titleKey(String title, long rid) {
+        String normalized = Collation.normalize(title);
+        byte[] text = normalized.getBytes(StandardCharsets.UTF_8);
+        while (text.length > TITLE_KEY_BYTES) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+            text = normalized.getBytes(StandardCharsets.UTF_8);
+        }
+        return concat(concat(text, new byte[] {0}), longBytes(rid));
+    }
+
+    // Big-endian with the sign bit flipped, so unsigned byte order is numeric order
+    private static byte[] intKey(int value) {
+        return ByteBuffer.allocate(4).putInt(value ^ Integer.MIN_VALUE).array();
+    }
+
+    private static byte[] doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        bits ^= (bits >> 63) | Long.MIN_VALUE; // Negative numbers: flip all bits; positive: only the sign
+        return longBytes(bits);
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+}
@@ -0,0 +1,70 @@
+package storage;
+
+/**
+ * The stored form of a movie: its catalog fields, with director and lead actor by name.
+ * User ratings stay with the in-memory Movie and the data files.
+ */
+public class MovieRecord {
+    private final int id;
+    private final String title;
+    private final int year;
+    private final String genre;
+    private final int duration;
+    private final String directorName;
+    private final double imdbRating;
+    private final String leadActorName;
+
+    public MovieRecord(int id, String title, int year, String genre, int duration,
+                       String directorName, double imdbRating, String leadActorName) {
+        this.id = id;
+        this.title = title;
+        this.year = year;
+        this.genre = genre;
+        this.duration = duration;
+        this.directorName = directorName;
+        this.imdbRating = imdbRating;
+        this.leadActorName = leadActorName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public String getDirectorName() {
+        return directorName;
+    }
+
+    public double getImdbRating() {
+        return imdbRating;
+    }
+
+    public String getLeadActorName() {
+        return leadActorName;
+    }
+
+    @Override
+    public String toString() {
+        return "MovieRecord{" +
+               "id=" + id +
+               ", titlos='" + title + '\'' +
+               ", etos=" + year +
+               ", imdb=" + imdbRating +
+               '}';
+    }
+}
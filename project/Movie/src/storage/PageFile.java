@@ -0,0 +1,80 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of fixed-size pages, read and written whole by page number.
+ */
+public class PageFile implements Closeable {
+    public static final int PAGE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private int pageCount;
+    private long pagesRead;
+    private long pagesWritten;
+
+    public PageFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.pageCount = (int) (channel.size() / PAGE_SIZE);
+    }
+
+    public synchronized int getPageCount() {
+        return pageCount;
+    }
+
+    // Reserves a new page at the end of the file; it is written on the first flush
+    public synchronized int allocate() {
+        return pageCount++;
+    }
+
+    /**
+     * Reads a page into the buffer (position 0, limit PAGE_SIZE).
+     * A page that was allocated but never written reads as zeros.
+     */
+    public synchronized void read(int pageNo, ByteBuffer into) throws IOException {
+        into.clear();
+        long offset = (long) pageNo * PAGE_SIZE;
+        while (into.hasRemaining()) {
+            int n = channel.read(into, offset + into.position());
+            if (n < 0) {
+                while (into.hasRemaining()) {
+                    into.put((byte) 0);
+                }
+            }
+        }
+        into.clear();
+        pagesRead++;
+    }
+
+    public synchronized void write(int pageNo, ByteBuffer from) throws IOException {
+        ByteBuffer page = from.duplicate();
+        page.clear();
+        long offset = (long) pageNo * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            channel.write(page, offset + page.position());
+        }
+        pagesWritten++;
+    }
+
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized long getPagesRead() {
+        return pagesRead;
+    }
+
+    public synchronized long getPagesWritten() {
+        return pagesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,134 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Scratch file for state paged out of memory (see WorkingSet). Each state gets a slot of a
+ * power-of-two size; it is rewritten in place while it fits, moves to a larger slot when it
+ * grows (the old slot is reused later), and isn't written at all when it is unchanged since
+ * the last write. The file is emptied when opened and deleted on exit.
+ */
+public class SpillFile implements Closeable {
+    private static final int MIN_SLOT_BYTES = 64;
+
+    public static final class Slot {
+        private final long offset;
+        private final int capacity;
+        private int length;
+        private int checksum;
+
+        private Slot(long offset, int capacity) {
+            this.offset = offset;
+            this.capacity = capacity;
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<Integer, ArrayDeque<Long>> freeSlots = new HashMap<>(); // capacity -> offsets
+    private long end;
+    private long bytesWritten;
+    private long bytesRead;
+    private long writesSkipped;
+
+    public SpillFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        path.toFile().deleteOnExit();
+    }
+
+    /**
+     * Stores data, in the previous slot of the same state if it fits.
+     * @param previous The slot the state was last written to, or null.
+     * @return The slot now holding the data.
+     */
+    public synchronized Slot write(Slot previous, byte[] data) throws IOException {
+        int checksum = checksum(data);
+        if (previous != null && previous.length == data.length && previous.checksum == checksum) {
+            writesSkipped++; // Faulted in and evicted again without a change
+            return previous;
+        }
+        Slot slot = previous;
+        if (slot == null || slot.capacity < data.length) {
+            if (slot != null) {
+                freeSlots.computeIfAbsent(slot.capacity, c -> new ArrayDeque<>()).add(slot.offset);
+            }
+            slot = allocate(data.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = slot.offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        slot.length = data.length;
+        slot.checksum = checksum;
+        bytesWritten += data.length;
+        return slot;
+    }
+
+    public synchronized byte[] read(Slot slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(slot.length);
+        long position = slot.offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("To " + path + " teleiose prowra");
+            }
+            position += read;
+        }
+        if (checksum(buffer.array()) != slot.checksum) {
+            throw new IOException("Xalasmena dedomena sto " + path + " (offset " + slot.offset + ")");
+        }
+        bytesRead += slot.length;
+        return buffer.array();
+    }
+
+    // Size of the file, including free slots
+    public synchronized long getSize() {
+        return end;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    public synchronized long getWritesSkipped() {
+        return writesSkipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Slot allocate(int length) {
+        int capacity = Math.max(MIN_SLOT_BYTES, Integer.highestOneBit(Math.max(length - 1, 1)) << 1);
+        ArrayDeque<Long> free = freeSlots.get(capacity);
+        if (free != null && !free.isEmpty()) {
+            return new Slot(free.poll(), capacity);
+        }
+        Slot slot = new Slot(end, capacity);
+        end += capacity;
+        return slot;
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
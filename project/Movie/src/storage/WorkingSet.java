@@ -0,0 +1,212 @@
+package storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded set of titles whose bulky state (rating maps, seasons with episodes) is in memory.
+ * The titles themselves stay in the catalog lists; when the estimated size of the resident
+ * state goes over the budget, the state of cold titles is written to a SpillFile and released,
+ * and the next getter that needs it reads it back.
+ * Eviction uses CLOCK: an access sets the title's reference bit (and refreshes its size
+ * estimate), and the hand evicts the first title whose bit is clear, clearing bits as it passes.
+ * Paging is off (everything stays in memory) until enable is called. Eviction runs on the
+ * thread that faults a title in, so titles must not be used from several threads at once
+ * while paging is on, and a list returned by a getter shouldn't be kept across accesses to other titles.
+ */
+public final class WorkingSet {
+
+    public interface Pageable {
+        // Estimated heap size of the paged state while it is in memory
+        long pagedBytes();
+
+        void writePaged(DataOutputStream out, References refs) throws IOException;
+
+        // Restores the state written by writePaged
+        void readPaged(DataInputStream in, References refs) throws IOException;
+
+        // Releases the state after it was written
+        void dropPaged();
+    }
+
+    /**
+     * Paging bookkeeping of one title; the title creates it and passes it to access
+     * before every use of its paged state.
+     */
+    public static final class Entry {
+        private final Pageable owner;
+        private boolean referenced;
+        private boolean resident = true;
+        private int clockIndex = -1; // Not tracked yet
+        private long bytes;
+        private SpillFile.Slot slot;
+
+        public Entry(Pageable owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Shared objects (directors, actors) referred to from paged state. They stay in memory,
+     * so paged state stores a number instead of a copy.
+     */
+    public static final class References {
+        private final Map<Object, Integer> ids = new IdentityHashMap<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        public int idOf(Object object) {
+            return ids.computeIfAbsent(object, o -> {
+                objects.add(o);
+                return objects.size() - 1;
+            });
+        }
+
+        public <T> T get(int id, Class<T> type) {
+            return type.cast(objects.get(id));
+        }
+    }
+
+    private static volatile WorkingSet active;
+
+    private final SpillFile spill;
+    private final long budgetBytes;
+    private final References refs = new References();
+    private final List<Entry> clock = new ArrayList<>();
+    private int hand;
+    private long usedBytes;
+    private long faults;
+    private long evictions;
+
+    private WorkingSet(SpillFile spill, long budgetBytes) {
+        this.spill = spill;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Turns paging on. Call before the catalog is loaded, so loading stays within the budget too.
+     * @param spillPath Scratch file for paged-out state.
+     * @param budgetBytes Estimated heap size the resident state may take.
+     */
+    public static synchronized void enable(Path spillPath, long budgetBytes) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("H selidopoiisi einai idi energi");
+        }
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("To orio mnimis prepei na einai thetiko");
+        }
+        active = new WorkingSet(new SpillFile(spillPath), budgetBytes);
+        System.out.println("[INFO] Catalog paging on: " + budgetBytes / 1024 + " KB budget, spill file " + spillPath);
+    }
+
+    // The working set, or null while paging is off
+    public static WorkingSet getActive() {
+        return active;
+    }
+
+    /**
+     * Makes the title's paged state resident, reading it back if it was paged out.
+     * Without paging this is a single volatile read.
+     * @throws UncheckedIOException If the spill file can't be read.
+     */
+    public static void access(Entry entry) {
+        WorkingSet workingSet = active;
+        if (workingSet != null) {
+            workingSet.touch(entry);
+        }
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d resident titles, ~%d / %d KB, %d faults, %d evictions, spill file %d KB (%d KB written, %d KB read, %d unchanged writes skipped)",
+                clock.size(), usedBytes / 1024, budgetBytes / 1024, faults, evictions, spill.getSize() / 1024,
+                spill.getBytesWritten() / 1024, spill.getBytesRead() / 1024, spill.getWritesSkipped());
+    }
+
+    public synchronized long getFaults() {
+        return faults;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private synchronized void touch(Entry entry) {
+        if (!entry.resident) {
+            try {
+                byte[] data = spill.read(entry.slot);
+                entry.owner.readPaged(new DataInputStream(new ByteArrayInputStream(data)), refs);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not page in a title", e);
+            }
+            entry.resident = true;
+            faults++;
+        }
+        if (entry.clockIndex < 0) {
+            entry.clockIndex = clock.size();
+            clock.add(entry);
+        }
+        entry.referenced = true;
+        // The state changes through the getters' results, so the estimate from the last access is updated here
+        long bytes = entry.owner.pagedBytes();
+        usedBytes += bytes - entry.bytes;
+        entry.bytes = bytes;
+        if (usedBytes > budgetBytes) {
+            evictOverBudget(entry);
+        }
+    }
+
+    // Runs the clock hand until the estimate is within the budget; keep is the title being accessed
+    private void evictOverBudget(Entry keep) {
+        while (usedBytes > budgetBytes && clock.size() > 1) {
+            if (hand >= clock.size()) {
+                hand = 0;
+            }
+            Entry entry = clock.get(hand);
+            // Titles grow while resident, so the estimate is refreshed as the hand passes
+            long bytes = entry.owner.pagedBytes();
+            usedBytes += bytes - entry.bytes;
+            entry.bytes = bytes;
+            if (entry == keep || entry.referenced) {
+                entry.referenced = false;
+                hand++;
+                continue;
+            }
+            try {
+                evict(entry);
+            } catch (IOException e) {
+                // Over budget is better than losing the state; retried on the next fault
+                System.err.println("[ERROR] Could not page out a title: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void evict(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            entry.owner.writePaged(out, refs);
+        }
+        entry.slot = spill.write(entry.slot, bytes.toByteArray());
+        entry.owner.dropPaged();
+        entry.resident = false;
+        usedBytes -= entry.bytes;
+        entry.bytes = 0;
+
+        // The last entry takes the freed position, so the hand looks at it next
+        Entry last = clock.remove(clock.size() - 1);
+        if (last != entry) {
+            clock.set(entry.clockIndex, last);
+            last.clockIndex = entry.clockIndex;
+        }
+        entry.clockIndex = -1;
+        evictions++;
+    }
+}
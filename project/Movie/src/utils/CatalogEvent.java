@@ -0,0 +1,176 @@
+package utils;
+
+import model.Movie;
+import model.Season;
+import model.Series;
+import model.TrendScore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A change to the catalog, published on the CatalogEvents stream after the change is made.
+ * Events refer to the title that changed; subscribers read its current state from it. Season
+ * years are copied into the event, because the season list may change again before a
+ * subscriber gets to it.
+ */
+public abstract class CatalogEvent {
+
+    private CatalogEvent() {
+    }
+
+    // Calls the listener method for this type of event
+    public abstract void dispatch(CatalogListener listener);
+
+    public static final class MovieAdded extends CatalogEvent {
+        private final Movie movie;
+
+        public MovieAdded(Movie movie) {
+            this.movie = movie;
+        }
+
+        public Movie getMovie() {
+            return movie;
+        }
+
+        @Override
+        public void dispatch(CatalogListener listener) {
+            listener.movieAdded(this);
+        }
+    }
+
+    public static final class SeriesAdded extends CatalogEvent {
+        private final Series series;
+        private final List<Integer> seasonYears;
+
+        public SeriesAdded(Series series) {
+            this.series = series;
+            this.seasonYears = seasonYears(series);
+        }
+
+        public Series getSeries() {
+            return series;
+        }
+
+        // Year of every season when the series was added
+        public List<Integer> getSeasonYears() {
+            return seasonYears;
+        }
+
+        @Override
+        public void dispatch(CatalogListener listener) {
+            listener.seriesAdded(this);
+        }
+    }
+
+    /**
+     * The ratings of a movie or series changed: either one user's rating, or a whole batch of
+     * an import (see RatingImporter), which names no single rating.
+     */
+    public static final class RatingChanged extends CatalogEvent {
+        private final Movie movie; // Exactly one of movie and series is set
+        private final Series series;
+        private final int userId;
+        private final int rating;
+        private final long epochSecond;
+        private final int count;
+
+        private RatingChanged(Movie movie, Series series, int userId, int rating, long epochSecond, int count) {
+            this.movie = movie;
+            this.series = series;
+            this.userId = userId;
+            this.rating = rating;
+            this.epochSecond = epochSecond;
+            this.count = count;
+        }
+
+        public static RatingChanged of(Movie movie, int userId, int rating, long epochSecond) {
+            return new RatingChanged(movie, null, userId, rating, epochSecond, 1);
+        }
+
+        public static RatingChanged of(Series series, int userId, int rating, long epochSecond) {
+            return new RatingChanged(null, series, userId, rating, epochSecond, 1);
+        }
+
+        // Several ratings of the title were added at once
+        public static RatingChanged bulk(Movie movie, int count) {
+            return new RatingChanged(movie, null, -1, 0, TrendScore.UNKNOWN_TIME, count);
+        }
+
+        public static RatingChanged bulk(Series series, int count) {
+            return new RatingChanged(null, series, -1, 0, TrendScore.UNKNOWN_TIME, count);
+        }
+
+        public boolean isMovie() {
+            return movie != null;
+        }
+
+        public Movie getMovie() {
+            return movie;
+        }
+
+        public Series getSeries() {
+            return series;
+        }
+
+        // False for a bulk change, which has no user, rating or time
+        public boolean isSingle() {
+            return userId >= 0;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public long getEpochSecond() {
+            return epochSecond;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void dispatch(CatalogListener listener) {
+            listener.ratingChanged(this);
+        }
+    }
+
+    // Seasons were added or removed
+    public static final class SeasonsChanged extends CatalogEvent {
+        private final Series series;
+        private final List<Integer> seasonYears;
+
+        public SeasonsChanged(Series series) {
+            this.series = series;
+            this.seasonYears = seasonYears(series);
+        }
+
+        public Series getSeries() {
+            return series;
+        }
+
+        // Year of every season after the change
+        public List<Integer> getSeasonYears() {
+            return seasonYears;
+        }
+
+        @Override
+        public void dispatch(CatalogListener listener) {
+            listener.seasonsChanged(this);
+        }
+    }
+
+    private static List<Integer> seasonYears(Series series) {
+        List<Integer> years = new ArrayList<>();
+        for (Season season : series.getSeasons()) {
+            years.add(season.getYear());
+        }
+        return Collections.unmodifiableList(years);
+    }
+}
@@ -0,0 +1,173 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stream of catalog changes (java.util.concurrent.Flow). Code that changes the catalog publishes
+ * one CatalogEvent per change (see DataLoader.addNewMovie, addMovieRating and so on), and the
+ * structures derived from the catalog subscribe to it: rankings, the catalog store, the journal
+ * and the UI. Nothing that changes the catalog has to know who depends on it.
+ *
+ * Every subscriber gets the events in order on its own thread, so derived structures are updated
+ * off the writer's thread, and a slow subscriber doesn't hold up the others. Each subscriber
+ * buffers at most BUFFER_CAPACITY events; when a buffer is full, publish blocks until that
+ * subscriber catches up, so memory stays bounded and no event is dropped.
+ * Loading and replaying the data files publish nothing; subscribers start from the loaded catalog.
+ */
+public final class CatalogEvents {
+    public static final int BUFFER_CAPACITY = 1024;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "catalog-events-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final SubmissionPublisher<CatalogEvent> publisher = new SubmissionPublisher<>(executor, BUFFER_CAPACITY);
+    private static final AtomicLong published = new AtomicLong();
+    private static final List<ListenerSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private CatalogEvents() {
+    }
+
+    /**
+     * Subscriber handle of a CatalogListener: requests events in chunks of half the buffer,
+     * counts the events it has handled, and keeps going when the listener throws.
+     */
+    public static final class ListenerSubscriber implements Flow.Subscriber<CatalogEvent> {
+        private final String name;
+        private final CatalogListener listener;
+        private final long startedAt; // Events published before it subscribed
+        private Flow.Subscription subscription;
+        private long unrequested;
+        private long handled;
+        private boolean done;
+
+        private ListenerSubscriber(String name, CatalogListener listener, long startedAt) {
+            this.name = name;
+            this.listener = listener;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(BUFFER_CAPACITY);
+        }
+
+        @Override
+        public void onNext(CatalogEvent event) {
+            try {
+                event.dispatch(listener);
+            } catch (RuntimeException e) {
+                // A failing update must not end the subscription, or the structure would stop following the catalog
+                System.err.println("[ERROR] Catalog subscriber '" + name + "' failed on " + event.getClass().getSimpleName() + ": " + e);
+            }
+            if (++unrequested == BUFFER_CAPACITY / 2) {
+                subscription.request(unrequested);
+                unrequested = 0;
+            }
+            synchronized (this) {
+                handled++;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("[ERROR] Catalog subscriber '" + name + "' stopped: " + throwable);
+            finish();
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        private synchronized void finish() {
+            done = true;
+            notifyAll();
+        }
+
+        // Waits until every event published so far has been handled
+        public synchronized void awaitHandled() throws InterruptedException {
+            long target = published.get() - startedAt;
+            while (handled < target && !done) {
+                wait();
+            }
+        }
+
+        private synchronized boolean awaitDone(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!done) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                wait(left);
+            }
+            return true;
+        }
+
+        // Events published since it subscribed that it hasn't finished handling, including the one in progress
+        public synchronized long backlog() {
+            return published.get() - startedAt - handled;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Subscribes a listener to every event published from now on.
+     * @param name Used in log messages.
+     * @return The handle, e.g. to wait until the listener has caught up.
+     */
+    public static ListenerSubscriber subscribe(String name, CatalogListener listener) {
+        ListenerSubscriber subscriber = new ListenerSubscriber(name, listener, published.get());
+        subscribers.add(subscriber);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    // For subscribers that want the raw Flow protocol
+    public static Flow.Publisher<CatalogEvent> publisher() {
+        return publisher;
+    }
+
+    /**
+     * Hands an event to every subscriber. Blocks while a subscriber's buffer is full.
+     * Call after the change is made, from the thread that made it.
+     */
+    public static void publish(CatalogEvent event) {
+        published.incrementAndGet();
+        publisher.submit(event);
+    }
+
+    /**
+     * Ends the stream once the subscribers have handled what was published, e.g. before the
+     * journal is closed at shutdown. Nothing can be published afterwards.
+     */
+    public static void close() {
+        publisher.close();
+        try {
+            for (ListenerSubscriber subscriber : subscribers) {
+                if (!subscriber.awaitDone(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS))) {
+                    System.err.println("[WARNING] Catalog subscriber '" + subscriber.getName() + "' did not finish in time");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package utils;
+
+import model.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the catalog (titles, their per-user ratings, and seasons with episodes) to a CSV or
+ * JSON Lines file for analytics. Each record is written to a buffered stream as it is visited,
+ * so memory use doesn't grow with the catalog; only the list of title references is copied,
+ * so edits made meanwhile don't disturb the export.
+ *
+ * CSV has one row per record, with the record type in the first column (movie, series,
+ * season, episode, rating) and the parent title in parent_id. JSON Lines has one object per title
+ * with its ratings and seasons nested.
+ */
+public class CatalogExporter {
+    public enum Format { CSV, JSONL }
+
+    public static final String[] CSV_HEADER = {
+            "record", "id", "parent_id", "title", "year", "genre", "season", "duration",
+            "director", "imdb", "lead_actor", "user_id", "rating", "rated_at", "average_user_rating"
+    };
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long PROGRESS_EVERY = 1_000_000; // Rows between progress lines
+
+    /**
+     * Rows written and the speed of an export.
+     */
+    public static class Result {
+        private final long rows;
+        private final long titles;
+        private final long fileBytes;
+        private final long nanos;
+
+        Result(long rows, long titles, long fileBytes, long nanos) {
+            this.rows = rows;
+            this.titles = titles;
+            this.fileBytes = fileBytes;
+            this.nanos = nanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getTitles() {
+            return titles;
+        }
+
+        public long getFileBytes() {
+            return fileBytes;
+        }
+
+        public double getSeconds() {
+            return nanos / 1_000_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return nanos == 0 ? 0 : rows / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows (%d titles), %d KB in %.2f s, %.0f rows/s",
+                    rows, titles, fileBytes / 1024, getSeconds(), getRowsPerSecond());
+        }
+    }
+
+    private final Format format;
+    private final boolean gzip;
+    private final boolean sortByTitle;
+    private Writer out;
+    private long rows;
+    private long titles;
+
+    /**
+     * @param format File format.
+     * @param gzip Compress the file with gzip.
+     * @param sortByTitle Write titles in Greek-aware title order (see Collation) instead of catalog order.
+     */
+    public CatalogExporter(Format format, boolean gzip, boolean sortByTitle) {
+        this.format = format;
+        this.gzip = gzip;
+        this.sortByTitle = sortByTitle;
+    }
+
+    /**
+     * Writes the titles that pass the filters.
+     * @param target The file to write; replaced if it exists.
+     * @param movieFilter Movies to export (m -> false for none).
+     * @param seriesFilter Series to export (s -> false for none).
+     */
+    public Result export(Path target, Predicate<Movie> movieFilter, Predicate<Series> seriesFilter) throws IOException {
+        List<Movie> movies = new ArrayList<>(DataLoader.movies);
+        List<Series> series = new ArrayList<>(DataLoader.seriesList);
+        long start = System.nanoTime();
+        rows = 0;
+        titles = 0;
+
+        OutputStream file = Files.newOutputStream(target);
+        OutputStream stream = gzip ? new GZIPOutputStream(file, BUFFER_BYTES) : file;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_BYTES)) {
+            out = writer;
+            if (format == Format.CSV) {
+                csvRow((Object[]) CSV_HEADER);
+            }
+            RowOrder movieOrder = sortByTitle
+                    ? SortIndex.byText(movies.size(), row -> movies.get(row).getTitle()).ascending()
+                    : RowOrder.natural(movies.size());
+            for (int position = 0; position < movieOrder.size(); position++) {
+                Movie movie = movies.get(movieOrder.rowAt(position));
+                if (movieFilter.test(movie)) {
+                    writeMovie(movie);
+                }
+            }
+            RowOrder seriesOrder = sortByTitle
+                    ? SortIndex.byText(series.size(), row -> series.get(row).getTitle()).ascending()
+                    : RowOrder.natural(series.size());
+            for (int position = 0; position < seriesOrder.size(); position++) {
+                Series current = series.get(seriesOrder.rowAt(position));
+                if (seriesFilter.test(current)) {
+                    writeSeries(current);
+                }
+            }
+        } finally {
+            out = null;
+        }
+
+        Result result = new Result(rows, titles, Files.size(target), System.nanoTime() - start);
+        System.out.println("[INFO] Exported " + target + ": " + result);
+        return result;
+    }
+
+    private void writeMovie(Movie movie) throws IOException {
+        titles++;
+        if (format == Format.CSV) {
+            csvRow("movie", movie.getId(), "", movie.getTitle(), movie.getYear(), movie.getGenre(), "", movie.getDuration(),
+                    movie.getDirector().getFullName(), movie.getImdbRating(), movie.getLeadActor().getFullName(),
+                    "", "", "", movie.getAverageUserRating());
+            csvRatings(movie.getId(), movie.getUserRatings(), movie::getRatingTime);
+            return;
+        }
+        out.write("{\"type\":\"movie\",\"id\":");
+        out.write(String.valueOf(movie.getId()));
+        jsonField("title", movie.getTitle());
+        jsonField("year", movie.getYear());
+        jsonField("genre", movie.getGenre());
+        jsonField("duration", movie.getDuration());
+        jsonField("director", movie.getDirector().getFullName());
+        jsonField("imdb", movie.getImdbRating());
+        jsonField("leadActor", movie.getLeadActor().getFullName());
+        jsonRatings(movie.getRatingHistogram(), movie.isApproximate(), movie.getDistinctRaters(),
+                movie.getUserRatings(), movie::getRatingTime);
+        endLine();
+    }
+
+    private void writeSeries(Series series) throws IOException {
+        titles++;
+        if (format == Format.CSV) {
+            csvRow("series", series.getId(), "", series.getTitle(), "", series.getGenre(), "", "",
+                    "", "", "", "", "", "", series.getAverageUserRating());
+            csvRatings(series.getId(), series.getUserRatings(), series::getRatingTime);
+            for (Season season : series.getSeasons()) {
+                csvRow("season", "", series.getId(), "", season.getYear(), "", season.getSeasonNumber(), "",
+                        "", "", "", "", "", "", "");
+                for (Episode episode : season.getEpisodes()) {
+                    csvRow("episode", episode.getId(), series.getId(), "", "", "", season.getSeasonNumber(), episode.getDuration(),
+                            episode.getDirector().getFullName(), episode.getImdbRating(), episode.getLeadActor().getFullName(),
+                            "", "", "", "");
+                }
+            }
+            return;
+        }
+        out.write("{\"type\":\"series\",\"id\":");
+        out.write(String.valueOf(series.getId()));
+        jsonField("title", series.getTitle());
+        jsonField("genre", series.getGenre());
+        jsonRatings(series.getRatingHistogram(), series.isApproximate(), series.getDistinctRaters(),
+                series.getUserRatings(), series::getRatingTime);
+        out.write(",\"seasons\":[");
+        boolean firstSeason = true;
+        for (Season season : series.getSeasons()) {
+            out.write(firstSeason ? "{\"number\":" : ",{\"number\":");
+            firstSeason = false;
+            out.write(String.valueOf(season.getSeasonNumber()));
+            jsonField("year", season.getYear());
+            out.write(",\"episodes\":[");
+            boolean firstEpisode = true;
+            for (Episode episode : season.getEpisodes()) {
+                out.write(firstEpisode ? "{\"id\":" : ",{\"id\":");
+                firstEpisode = false;
+                out.write(String.valueOf(episode.getId()));
+                jsonField("duration", episode.getDuration());
+                jsonField("director", episode.getDirector().getFullName());
+                jsonField("imdb", episode.getImdbRating());
+                jsonField("leadActor", episode.getLeadActor().getFullName());
+                out.write('}');
+            }
+            out.write("]}");
+        }
+        out.write(']');
+        endLine();
+    }
+
+    private interface RatingTimes {
+        long of(int userId);
+    }
+
+    private void csvRatings(int titleId, Map<Integer, Integer> ratings, RatingTimes times) throws IOException {
+        for (Map.Entry<Integer, Integer> entry : ratings.entrySet()) {
+            long time = times.of(entry.getKey());
+            csvRow("rating", "", titleId, "", "", "", "", "", "", "", "",
+                    entry.getKey(), entry.getValue(), time == TrendScore.UNKNOWN_TIME ? "" : time, "");
+        }
+    }
+
+    // Titles in approximate mode have no per-user ratings, only the aggregates
+    private void jsonRatings(RatingHistogram histogram, boolean approximate, long distinctRaters,
+                             Map<Integer, Integer> ratings, RatingTimes times) throws IOException {
+        jsonField("averageUserRating", histogram.getAverage());
+        jsonField("ratingCount", histogram.getCount());
+        jsonField("distinctRaters", distinctRaters);
+        out.write(",\"approximate\":");
+        out.write(String.valueOf(approximate));
+        out.write(",\"ratings\":[");
+        boolean first = true;
+        for (Map.Entry<Integer, Integer> entry : ratings.entrySet()) {
+            out.write(first ? "{\"user\":" : ",{\"user\":");
+            first = false;
+            out.write(String.valueOf(entry.getKey()));
+            jsonField("rating", entry.getValue());
+            long time = times.of(entry.getKey());
+            if (time != TrendScore.UNKNOWN_TIME) {
+                jsonField("time", time);
+            }
+            out.write('}');
+        }
+        out.write(']');
+    }
+
+    private void jsonField(String name, String value) throws IOException {
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        writeJsonString(out, value);
+    }
+
+    private void jsonField(String name, long value) throws IOException {
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        out.write(String.valueOf(value));
+    }
+
+    private void jsonField(String name, double value) throws IOException {
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        out.write(Double.isFinite(value) ? String.valueOf(value) : "null");
+    }
+
+    private void endLine() throws IOException {
+        out.write("}\n");
+        countRow();
+    }
+
+    private void csvRow(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeCsvField(out, String.valueOf(fields[i]));
+        }
+        out.write("\r\n"); // RFC 4180 line break
+        countRow();
+    }
+
+    private void countRow() {
+        rows++;
+        if (rows % PROGRESS_EVERY == 0) {
+            System.out.println("[INFO] Exported " + rows + " rows...");
+        }
+    }
+
+    // Quotes fields with separators, quotes or line breaks, doubling inner quotes
+    static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
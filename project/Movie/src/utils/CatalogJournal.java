@@ -0,0 +1,365 @@
+package utils;
+
+import model.*;
+import storage.WorkingSet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes catalog edits durable: every added movie / series and season change is appended to a
+ * write-ahead log (Catalog.wal) next to the data files, and replayed on top of the loaded .txt
+ * files at startup. Ratings are kept in the rating history instead (see RatingHistory); rating
+ * records of older logs are still replayed. Compaction writes the whole catalog back to Movies.txt
+ * and Series.txt, empties the log and moves the rating history's checkpoint, which also keeps the
+ * statistics of titles in approximate mode.
+ * Records are tab-separated text; entities are referred to by id, which replayed entities keep.
+ * Titles already in the data files are skipped on replay, so a log that a compaction had to keep
+ * (edits came in while it wrote the files) replays safely.
+ * Edits reach the journal as catalog events (see CatalogEvents), which it writes on its own
+ * event thread.
+ */
+public class CatalogJournal {
+    public static final String LOG_FILE = "Catalog.wal";
+    // Compact once the log holds this many records
+    public static final int COMPACT_THRESHOLD = 10_000;
+
+    private static volatile WriteAheadLog log;
+    // The last background compaction; one at a time
+    private static volatile CompletableFuture<Void> running = CompletableFuture.completedFuture(null);
+    private static final Executor COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "catalog-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static String basePath;
+    private static CatalogEvents.ListenerSubscriber subscription;
+
+    private static final CatalogListener LISTENER = new CatalogListener() {
+        @Override
+        public void movieAdded(CatalogEvent.MovieAdded event) {
+            Movie movie = event.getMovie();
+            append("MOVIE", movie.getId(), movie.getTitle(), movie.getYear(), movie.getGenre(), movie.getDuration(),
+                    movie.getDirector().getFullName(), movie.getImdbRating(), movie.getLeadActor().getFullName());
+        }
+
+        @Override
+        public void seriesAdded(CatalogEvent.SeriesAdded event) {
+            Series series = event.getSeries();
+            append("SERIES", series.getId(), series.getTitle(), series.getGenre(), seasonYears(event.getSeasonYears()));
+        }
+
+        // Seasons added or removed; the record holds the year of every season
+        @Override
+        public void seasonsChanged(CatalogEvent.SeasonsChanged event) {
+            append("SEASONS", event.getSeries().getId(), seasonYears(event.getSeasonYears()));
+        }
+    };
+
+    private CatalogJournal() {
+    }
+
+    /**
+     * Replays the log on top of the loaded catalog and opens it for new records.
+     * Call after the data files are loaded.
+     * @param dataPath Directory of the data files (as used by DataLoader).
+     */
+    public static void open(String dataPath) throws IOException {
+        close();
+        basePath = dataPath;
+        Path path = Paths.get(dataPath + LOG_FILE);
+        List<String> records = WriteAheadLog.replay(path);
+        int applied = 0;
+        for (String record : records) {
+            try {
+                apply(record.split("\t", -1));
+                applied++;
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Skipping log record '" + record + "': " + e.getMessage());
+            }
+        }
+        if (!records.isEmpty()) {
+            System.out.println("[INFO] Replayed " + applied + " of " + records.size() + " catalog edits from " + path);
+        }
+        log = new WriteAheadLog(path, records.size());
+        compactIfNeeded();
+    }
+
+    // Starts logging the catalog events; once, after the catalog is loaded
+    public static void subscribe() {
+        if (subscription == null) {
+            subscription = CatalogEvents.subscribe("journal", LISTENER);
+        }
+    }
+
+    // Close the event stream first (CatalogEvents.close), so the last edits are logged
+    public static void close() {
+        running.join(); // A background compaction still uses the log
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    // Also takes a rating snapshot once enough ratings came in, so startup replays few events
+    private static boolean needsCompaction() {
+        return log != null && (log.getRecordCount() >= COMPACT_THRESHOLD || RatingHistory.getTail() >= RatingHistory.SNAPSHOT_INTERVAL);
+    }
+
+    public static void compactIfNeeded() {
+        if (needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Like compactIfNeeded, but only the snapshot is taken on the calling thread (the one that edits
+     * the catalog); the data files are written on a background thread, so e.g. the UI doesn't wait for them.
+     * With paging on (see WorkingSet) the files are written on the calling thread: writing reads every
+     * title's ratings, which may fault titles in and evict others, and that must stay on one thread.
+     * Does nothing while an earlier compaction is still running.
+     */
+    public static void compactIfNeededInBackground() {
+        if (!running.isDone() || !needsCompaction()) {
+            return;
+        }
+        Snapshot snapshot = snapshot();
+        if (snapshot == null) {
+            return;
+        }
+        if (WorkingSet.getActive() != null) {
+            write(snapshot);
+        } else {
+            running = CompletableFuture.runAsync(() -> write(snapshot), COMPACTOR);
+        }
+    }
+
+    /**
+     * Writes the current catalog to Movies.txt and Series.txt, empties the log and records the
+     * ratings they hold as the rating history's checkpoint. Must run on the thread that edits the catalog.
+     * @return true if the data files were written.
+     */
+    public static boolean compact() {
+        running.join(); // Its snapshot is older; it must not write after this one
+        Snapshot snapshot = snapshot();
+        return snapshot != null && write(snapshot);
+    }
+
+    // What one compaction writes, taken at one moment on the thread that edits the catalog
+    private static final class Snapshot {
+        final WriteAheadLog log;
+        final long logRecords; // Records in the log up to the snapshot
+        final long ratingEvents; // Events in the rating history up to the snapshot
+        final List<String> approximate; // Not in the data files, see RatingHistory
+        final List<Movie> movies;
+        final List<Series> series;
+        final List<List<Season>> seasons; // Per series, its seasons at the snapshot
+        final List<List<List<Episode>>> episodes; // Per series and season
+
+        Snapshot(WriteAheadLog log) {
+            this.log = log;
+            this.logRecords = log.getAppendedCount();
+            this.ratingEvents = RatingHistory.getEventCount();
+            this.approximate = RatingHistory.snapshotApproximate();
+            this.movies = new ArrayList<>(DataLoader.movies);
+            this.series = new ArrayList<>(DataLoader.seriesList);
+            this.seasons = new ArrayList<>(series.size());
+            this.episodes = new ArrayList<>(series.size());
+            for (Series show : series) {
+                List<Season> showSeasons = new ArrayList<>(show.getSeasons());
+                List<List<Episode>> showEpisodes = new ArrayList<>(showSeasons.size());
+                for (Season season : showSeasons) {
+                    showEpisodes.add(new ArrayList<>(season.getEpisodes()));
+                }
+                seasons.add(showSeasons);
+                episodes.add(showEpisodes);
+            }
+        }
+    }
+
+    /**
+     * Waits for the journal and the history to log the events already published, then copies the
+     * title lists; otherwise an edit could be in the files and then logged again after the truncation
+     * or the checkpoint. Ratings are read while the files are written, so they can hold a few ratings
+     * after the checkpoint; replaying those again only adds to their trend weight.
+     * @return null if there is nothing to compact or the wait was interrupted.
+     */
+    private static Snapshot snapshot() {
+        WriteAheadLog current = log;
+        if (current == null) {
+            return null;
+        }
+        try {
+            if (subscription != null) {
+                subscription.awaitHandled();
+            }
+            RatingHistory.awaitLogged();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null; // Compacted next time
+        }
+        return new Snapshot(current);
+    }
+
+    private static boolean write(Snapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            writeAtomically(Paths.get(basePath + "Movies.txt"), out -> writeMovies(out, snapshot));
+            writeAtomically(Paths.get(basePath + "Series.txt"), out -> writeSeries(out, snapshot));
+            // Everything logged up to the snapshot is in the base files now; later edits keep the log
+            boolean truncated = snapshot.log.truncate(snapshot.logRecords).join();
+            RatingHistory.checkpoint(snapshot.ratingEvents, snapshot.approximate); // A crash just before replays some ratings again; only their trend weight counts twice
+            System.out.printf("[INFO] Compacted the catalog log in %.1f ms%s%n", (System.nanoTime() - start) / 1_000_000.0,
+                    truncated ? "" : " (edits came in meanwhile, the log is kept until the next compaction)");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[ERROR] Compaction failed, the log is kept: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void append(Object... fields) {
+        WriteAheadLog current = log; // Read once: runs on the journal's event thread
+        if (current == null) {
+            return; // No data directory, or closed
+        }
+        StringJoiner record = new StringJoiner("\t");
+        for (Object field : fields) {
+            // Tabs and line breaks would break the record or the base files
+            record.add(String.valueOf(field).replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+        }
+        current.append(record.toString()).exceptionally(e -> {
+            System.err.println("[ERROR] Catalog edit not saved: " + e.getMessage());
+            return null;
+        });
+    }
+
+    private static void apply(String[] f) {
+        switch (f[0]) {
+            case "MOVIE": {
+                if (DataLoader.findMovieById(Integer.parseInt(f[1])) != null) {
+                    break; // Already in the data files: compacted, but the log was kept
+                }
+                Director director = requireFound(DataLoader.findDirectorByName(f[6]), "Director", f[6]);
+                Actor actor = requireFound(DataLoader.findActorByName(f[8]), "Actor", f[8]);
+                DataLoader.addMovie(new Movie(Integer.parseInt(f[1]), f[2], Integer.parseInt(f[3]), f[4],
+                        Integer.parseInt(f[5]), director, Double.parseDouble(f[7]), actor));
+                break;
+            }
+            case "SERIES": {
+                if (DataLoader.findSeriesById(Integer.parseInt(f[1])) != null) {
+                    break;
+                }
+                Series series = new Series(Integer.parseInt(f[1]), f[2], f[3]);
+                setSeasons(series, f[4]);
+                DataLoader.addSeries(series);
+                break;
+            }
+            case "SEASONS":
+                setSeasons(requireFound(DataLoader.findSeriesById(Integer.parseInt(f[1])), "Series", f[1]), f[2]);
+                break;
+            case "MOVIE_RATING":
+                requireFound(DataLoader.findMovieById(Integer.parseInt(f[1])), "Movie", f[1])
+                        .addUserRating(Integer.parseInt(f[2]), Integer.parseInt(f[3]), Long.parseLong(f[4]));
+                break;
+            case "SERIES_RATING":
+                requireFound(DataLoader.findSeriesById(Integer.parseInt(f[1])), "Series", f[1])
+                        .addUserRating(Integer.parseInt(f[2]), Integer.parseInt(f[3]), Long.parseLong(f[4]));
+                break;
+            default:
+                throw new IllegalArgumentException("Agnosti eggrafi " + f[0]);
+        }
+    }
+
+    private static <T> T requireFound(T entity, String kind, String name) {
+        if (entity == null) {
+            throw new IllegalArgumentException(kind + " not found: " + name);
+        }
+        return entity;
+    }
+
+    private static String seasonYears(List<Integer> seasonYears) {
+        StringJoiner years = new StringJoiner(",");
+        seasonYears.forEach(year -> years.add(String.valueOf(year)));
+        return years.toString();
+    }
+
+    // Keeps the existing seasons (and their episodes) that are still there, like MainApp.updateSeriesSeasons
+    private static void setSeasons(Series series, String years) {
+        String[] yearList = years.isEmpty() ? new String[0] : years.split(",");
+        List<Season> seasons = series.getSeasons();
+        while (seasons.size() > yearList.length) {
+            seasons.remove(seasons.size() - 1);
+        }
+        for (int i = seasons.size(); i < yearList.length; i++) {
+            series.addSeason(new Season(i + 1, Integer.parseInt(yearList[i])));
+        }
+    }
+
+    interface FileContent {
+        void write(BufferedWriter out) throws IOException;
+    }
+
+    // Writes to a temporary file first, so a crash leaves either the old or the new file
+    static void writeAtomically(Path target, FileContent content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            content.write(out);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Same format loadMovies reads, with the id first so it stays the same on every launch
+    private static void writeMovies(BufferedWriter out, Snapshot snapshot) throws IOException {
+        for (Movie movie : snapshot.movies) {
+            out.write(String.join(",",
+                    String.valueOf(movie.getId()),
+                    movie.getTitle(),
+                    String.valueOf(movie.getYear()),
+                    movie.getGenre(),
+                    String.valueOf(movie.getDuration()),
+                    movie.getDirector().getFullName(),
+                    String.valueOf(movie.getImdbRating()),
+                    movie.getLeadActor().getFullName(),
+                    DataLoader.formatRatings(movie.getUserRatings(), movie::getRatingTime)));
+            out.newLine();
+        }
+    }
+
+    // Same SERIES: / SEASON: line protocol loadSeries reads, with the id first
+    private static void writeSeries(BufferedWriter out, Snapshot snapshot) throws IOException {
+        for (int i = 0; i < snapshot.series.size(); i++) {
+            Series series = snapshot.series.get(i);
+            out.write("SERIES:" + series.getId() + "," + series.getTitle() + "," + series.getGenre() + ","
+                    + DataLoader.formatRatings(series.getUserRatings(), series::getRatingTime));
+            out.newLine();
+            List<Season> seasons = snapshot.seasons.get(i);
+            for (int j = 0; j < seasons.size(); j++) {
+                Season season = seasons.get(j);
+                out.write("SEASON:" + season.getSeasonNumber() + ", " + season.getYear() + ":");
+                out.newLine();
+                for (Episode episode : snapshot.episodes.get(i).get(j)) {
+                    out.write(episode.getDuration() + "," + episode.getDirector().getFullName() + ","
+                            + episode.getImdbRating() + "," + episode.getLeadActor().getFullName());
+                    out.newLine();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package utils;
+
+/**
+ * Typed subscriber of the catalog event stream (see CatalogEvents); implement only the events
+ * of interest. Methods run on the listener's own event thread, one event at a time and in the
+ * order the changes were made.
+ */
+public interface CatalogListener {
+    default void movieAdded(CatalogEvent.MovieAdded event) {
+    }
+
+    default void seriesAdded(CatalogEvent.SeriesAdded event) {
+    }
+
+    default void ratingChanged(CatalogEvent.RatingChanged event) {
+    }
+
+    default void seasonsChanged(CatalogEvent.SeasonsChanged event) {
+    }
+}
@@ -0,0 +1,61 @@
+package utils;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Catalog-wide text ordering for titles, names and genres, which mix Greek and Latin.
+ * Uses the Greek collator, so accented and final letters (ά, ς) sort with their base letters
+ * instead of after the whole alphabet as with String.compareTo.
+ * Nothing is cached here: SortIndex.byText keeps the CollationKey of each row next to its index,
+ * which is where texts are compared often. All sorted views, indexes and exports go through here.
+ */
+public final class Collation {
+    private static final Collator COLLATOR = Collator.getInstance(new Locale("el", "GR"));
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private Collation() {
+    }
+
+    /**
+     * The sort key of a text, for callers that compare it many times. Safe to call from background threads.
+     * @param text The text; null sorts like an empty text.
+     */
+    public static CollationKey keyOf(String text) {
+        synchronized (COLLATOR) { // Collator instances are not thread-safe
+            return COLLATOR.getCollationKey(text == null ? "" : text);
+        }
+    }
+
+    public static int compare(String a, String b) {
+        synchronized (COLLATOR) {
+            return COLLATOR.compare(a == null ? "" : a, b == null ? "" : b);
+        }
+    }
+
+    // Order of plain strings, e.g. for TreeSets of genres
+    public static Comparator<String> order() {
+        return Collation::compare;
+    }
+
+    // Order of entities by one of their texts, e.g. Collation.comparing(Movie::getTitle)
+    public static <T> Comparator<T> comparing(Function<T, String> text) {
+        return (a, b) -> compare(text.apply(a), text.apply(b));
+    }
+
+    /**
+     * Search form of a text: lower case, without accents, final sigma as σ and single spaces,
+     * so "Ο Νονός" and "ο νονος" match. Used for prefix lookups, where collation keys don't help.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFD);
+        String plain = COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).replace('ς', 'σ');
+        return SPACES.matcher(plain).replaceAll(" ").trim();
+    }
+}
@@ -1,12 +1,28 @@
 package utils;
 
 import model.*;
+import storage.CatalogStore;
+import storage.MovieRecord;
+import storage.WorkingSet;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipInputStream;
 
 public class DataLoader {
     public static List<User> users = new ArrayList<>();
@@ -14,16 +30,67 @@ public class DataLoader {
     public static List<Director> directors = new ArrayList<>();
     public static List<Movie> movies = new ArrayList<>();
     public static List<Series> seriesList = new ArrayList<>();
+    // Same users as the list, indexed by username and id
+    public static UserDirectory userDirectory = new UserDirectory();
+    // Same titles as the lists, indexed by id
+    public static IdIndex<Movie> moviesById = new IdIndex<>();
+    public static IdIndex<Series> seriesById = new IdIndex<>();
+    // Position of each title in its list, for views that work with rows
+    private static final IdIndex<Integer> movieRows = new IdIndex<>();
+    private static final IdIndex<Integer> seriesRows = new IdIndex<>();
+    private static boolean subscribed;
+
+    // Optional page-based store of the movies (Catalog.db), enabled with -Dcatalog.store=true
+    public static volatile CatalogStore catalogStore; // Written to by its subscriber's event thread
+    public static final int STORE_CACHE_PAGES = 1024; // 4 MB of pages in memory
+    private static final int STORE_TITLE_CANDIDATES = 16;
+    // Spill file of the memory-bounded mode, enabled with -Dcatalog.heapBudgetMb=<MB>
+    public static final String SPILL_FILE = "Catalog.spill";
+    // A data file is read from the first of these that exists (see openDataFile)
+    private static final String[] DATA_FILE_SUFFIXES = {"", ".gz", ".zip", ".deflate"};
+    private static final int DECOMPRESS_BUFFER_BYTES = 64 * 1024;
+    // Upstream feed in JSON Lines (see JsonCatalogLoader), loaded after the text files when present
+    public static final String JSON_LINES_FILE = "Catalog.jsonl";
+    // Held while a process has the data directory open, see lockDataDirectory
+    public static final String LOCK_FILE = "Catalog.lock";
+    private static FileChannel lockChannel;
+    private static FileLock dataLock;
+    private static Path lockedPath;
+
+    // Highest id reserved per entity kind, as stored in Ids.txt
+    private static final Map<String, Integer> idLimits = new HashMap<>();
+    private static Path idStorePath;
 
     // Method to load only users (for login)
     public static void loadUsers(String path) throws IOException {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
+        // Read line by line, so a large user file is never held in memory as a whole
+        try (BufferedReader reader = openDataFile(path)) {
             users.clear(); // Clear existing users
-            for (String line : lines) {
+            userDirectory.clear();
+            int position = 0;
+            boolean withIds = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",");
                 if (parts.length < 4) continue;
-                users.add(new User(parts[0].trim(), parts[1].trim(), parts[2].trim(), parts[3].trim()));
+                String email = parts[3].trim();
+                if (!User.isValidEmail(email)) {
+                    System.err.println("[WARNING] Lathos morfi email gia ton xristi: " + parts[2].trim());
+                    continue;
+                }
+                String username = parts[2].trim();
+                if (userDirectory.findByUsername(username) != null) {
+                    System.err.println("[WARNING] To username yparxei idi: " + username);
+                    continue;
+                }
+                // The ratings of the data files refer to this id: the optional fifth field, else see legacyId
+                User user = new User(parts[0].trim(), parts[1].trim(), username, email);
+                position++;
+                withIds |= parts.length >= 5;
+                user.setId(parts.length >= 5 ? recordId(IdAllocator.USERS, parts[4], userDirectory::findById, "user " + username)
+                        : legacyId(IdAllocator.USERS, withIds, position, userDirectory::findById));
+                userDirectory.add(user);
+                users.add(user);
             }
             System.out.println("Loaded " + users.size() + " users");
         } catch (IOException e) {
@@ -41,8 +108,26 @@ public class DataLoader {
                 "" // Current directory
         };
 
-        String basePath = findBasePath(possiblePaths);
+        loadAllData(findBasePath(possiblePaths));
+    }
+
+    /**
+     * Loads the catalog from the data files in a directory.
+     * @param basePath The directory, ending with a separator ("" for the current directory).
+     */
+    public static void loadAllData(String basePath) throws IOException {
         System.out.println("Using base path: " + basePath);
+        lockDataDirectory(basePath);
+        openIdStore(basePath + "Ids.txt");
+        // Movies, series and users keep their ids on disk, in the data files and in the logs. Those created
+        // without one (feed titles, legacy lines) must not reissue an id a logged edit or rating still refers to.
+        restoreIdLimits(IdAllocator.MOVIES, IdAllocator.SERIES, IdAllocator.USERS);
+
+        // Memory-bounded mode: ratings and seasons of cold titles are paged out while loading already
+        long heapBudgetMb = Long.getLong("catalog.heapBudgetMb", 0);
+        if (heapBudgetMb > 0 && WorkingSet.getActive() == null) {
+            WorkingSet.enable(Paths.get(basePath + SPILL_FILE), heapBudgetMb * 1024 * 1024);
+        }
 
         // Only load users if not already loaded
         if (users.isEmpty()) {
@@ -58,6 +143,35 @@ public class DataLoader {
 
         loadMovies(basePath + "Movies.txt");
         loadSeries(basePath + "Series.txt");
+        int actorCount = actors.size();
+        int directorCount = directors.size();
+        int movieCount = movies.size();
+        int seriesCount = seriesList.size();
+        boolean feed = dataFileExists(basePath + JSON_LINES_FILE);
+        if (feed) {
+            JsonCatalogLoader.load(basePath + JSON_LINES_FILE);
+        }
+
+        // Edits made since the data files were last written
+        CatalogJournal.open(basePath);
+        // Ratings given since the data files were last written
+        RatingHistory.open(basePath, new ArrayList<>(movies.subList(movieCount, movies.size())),
+                new ArrayList<>(seriesList.subList(seriesCount, seriesList.size())));
+
+        // New entities continue above every id handed out in earlier runs
+        restoreIdLimits(IdAllocator.all());
+
+        if (feed) {
+            importFeed(basePath, actors.subList(actorCount, actors.size()), directors.subList(directorCount, directors.size()));
+        }
+
+        if (Boolean.getBoolean("catalog.store")) {
+            openCatalogStore(basePath + "Catalog.db");
+        }
+
+        // Build the leaderboards once; after this they are only updated per changed entity
+        Rankings.rebuild();
+        subscribeDerivedStructures();
 
         System.out.println("\n--- Data Loading Summary ---");
         System.out.println("Total Users: " + users.size());
@@ -65,12 +179,52 @@ public class DataLoader {
         System.out.println("Total Directors: " + directors.size());
         System.out.println("Total Movies: " + movies.size());
         System.out.println("Total Series: " + seriesList.size());
+        if (WorkingSet.getActive() != null) {
+            System.out.println("Paging: " + WorkingSet.getActive().getStats());
+        }
         System.out.println("--------------------------\n");
     }
 
+    /**
+     * Opens a data file for reading line by line (UTF-8). If the file itself is missing, a
+     * compressed copy next to it (e.g. Movies.txt.gz) is decompressed while it is read,
+     * without a temporary file.
+     * @param path The uncompressed file name.
+     */
+    static BufferedReader openDataFile(String path) throws IOException {
+        InputStream in;
+        if (Files.exists(Paths.get(path))) {
+            in = Files.newInputStream(Paths.get(path));
+        } else if (Files.exists(Paths.get(path + ".gz"))) {
+            in = new GZIPInputStream(Files.newInputStream(Paths.get(path + ".gz")), DECOMPRESS_BUFFER_BYTES);
+        } else if (Files.exists(Paths.get(path + ".zip"))) {
+            ZipInputStream zip = new ZipInputStream(Files.newInputStream(Paths.get(path + ".zip")));
+            if (zip.getNextEntry() == null) { // The first entry is the data file
+                zip.close();
+                throw new IOException("To " + path + ".zip einai adeio");
+            }
+            in = zip;
+        } else if (Files.exists(Paths.get(path + ".deflate"))) {
+            in = new InflaterInputStream(Files.newInputStream(Paths.get(path + ".deflate")), new Inflater(), DECOMPRESS_BUFFER_BYTES);
+        } else {
+            throw new NoSuchFileException(path);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), DECOMPRESS_BUFFER_BYTES);
+    }
+
+    // True if the data file or one of its compressed copies exists
+    static boolean dataFileExists(String path) {
+        for (String suffix : DATA_FILE_SUFFIXES) {
+            if (Files.exists(Paths.get(path + suffix))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static String findBasePath(String[] possiblePaths) {
         for (String path : possiblePaths) {
-            if (Files.exists(Paths.get(path + "Users.txt"))) {
+            if (dataFileExists(path + "Users.txt")) {
                 return path;
             }
         }
@@ -79,10 +233,10 @@ public class DataLoader {
     }
 
     private static void loadActors(String path) throws IOException {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
+        try (BufferedReader reader = openDataFile(path)) {
             actors.clear(); // Clear existing actors before loading
-            for (String line : lines) {
+            String line;
+            while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",", 5);
                 if (parts.length < 5) {
                     System.err.println("Skipping malformed actor line: " + line);
@@ -106,10 +260,10 @@ public class DataLoader {
     }
 
     private static void loadDirectors(String path) throws IOException {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
+        try (BufferedReader reader = openDataFile(path)) {
             directors.clear(); // Clear existing directors before loading
-            for (String line : lines) {
+            String line;
+            while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",", 5);
                 if (parts.length < 5) {
                     System.err.println("Skipping malformed director line: " + line);
@@ -222,60 +376,43 @@ public class DataLoader {
 
 
     private static void loadMovies(String path) throws IOException {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
+        try (BufferedReader reader = openDataFile(path)) {
             movies.clear(); // Clear existing movies before loading
-            for (String line : lines) {
+            moviesById.clear();
+            movieRows.clear();
+            int position = 0;
+            boolean withIds = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
                 String fullLine = line.replaceAll("\\r?\\n", " ");
-                String[] parts = fullLine.split(",", 8);
+                // "id,title,..." as compaction writes it, or "title,..." without an id; ratings hold no commas
+                String[] parts = fullLine.split(",", 9);
                 if (parts.length < 8) {
                     System.err.println("[ERROR] Invalid movie line (not enough parts): " + line);
                     continue;
                 }
+                int f = parts.length - 8; // First field after the id
+                position++;
+                withIds |= f > 0;
 
-                String directorName = parts[4].trim();
-                String actorName = parts[6].trim();
-
-                Director dir = findDirectorByName(directorName);
-                Actor actor = findActorByName(actorName);
-
-                if (dir == null) {
-                    System.err.println("[ERROR] Movie '" + parts[0].trim() + "': Director not found: '" + directorName + "'. Skipping movie.");
-                    continue;
-                }
-                if (actor == null) {
-                    System.err.println("[ERROR] Movie '" + parts[0].trim() + "': Actor not found: '" + actorName + "'. Skipping movie.");
+                Movie movie = buildMovie(
+                        f > 0 ? recordId(IdAllocator.MOVIES, parts[0], moviesById::get, "movie " + parts[f].trim())
+                                : legacyId(IdAllocator.MOVIES, withIds, position, moviesById::get),
+                        parts[f].trim(),
+                        Integer.parseInt(parts[f + 1].trim()),
+                        parts[f + 2].trim(),
+                        Integer.parseInt(parts[f + 3].trim()),
+                        parts[f + 4].trim(),
+                        Double.parseDouble(parts[f + 5].trim()),
+                        parts[f + 6].trim()
+                );
+                if (movie == null) {
                     continue;
                 }
 
-                Movie movie = new Movie(
-                        parts[0].trim(),
-                        Integer.parseInt(parts[1].trim()),
-                        parts[2].trim(),
-                        Integer.parseInt(parts[3].trim()),
-                        dir,
-                        Double.parseDouble(parts[5].trim()),
-                        actor
-                );
-
                 // Add user ratings
-                String ratingsStr = parts[7].trim();
-                if (!ratingsStr.isEmpty()) {
-                    String[] ratings = ratingsStr.split("\\|");
-                    for (String r : ratings) {
-                        if (r.contains(":")) {
-                            String[] idRating = r.split(":");
-                            if (idRating.length == 2) {
-                                try {
-                                    movie.addUserRating(Integer.parseInt(idRating[0].trim()), Integer.parseInt(idRating[1].trim()));
-                                } catch (NumberFormatException e) {
-                                    System.err.println("[WARNING] Invalid rating format: '" + r + "' for movie: " + movie.getTitle());
-                                }
-                            }
-                        }
-                    }
-                }
-                movies.add(movie);
+                parseRatings(parts[f + 7].trim(), movie.getTitle(), movie::addUserRating);
+                addMovie(movie);
             }
             System.out.println("Loaded " + movies.size() + " movies.");
         } catch (IOException e) {
@@ -287,13 +424,17 @@ public class DataLoader {
     }
 
     private static void loadSeries(String path) throws IOException {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(path));
+        try (BufferedReader reader = openDataFile(path)) {
             seriesList.clear(); // Clear existing series before loading
+            seriesById.clear();
+            seriesRows.clear();
             Series currentSeries = null;
             int seasonCounter = 0; // To keep track of season number for constructor
+            int position = 0;
+            boolean withIds = false;
 
-            for (String line : lines) {
+            String line;
+            while ((line = reader.readLine()) != null) {
                 line = line.trim();
 
                 // Skip empty lines or lines that start with a hash (comments) or instructional lines
@@ -310,31 +451,22 @@ public class DataLoader {
                 }
 
                 if (line.startsWith("SERIES:")) {
-                    String[] parts = line.substring(7).split(",", 3);
+                    // "SERIES:id,title,genre,ratings" as compaction writes it, or without the id
+                    String[] parts = line.substring(7).split(",", 4);
                     if (parts.length >= 2) {
-                        currentSeries = new Series(parts[0].trim(), parts[1].trim());
+                        int f = parts.length == 4 ? 1 : 0; // First field after the id
+                        position++;
+                        withIds |= f > 0;
+                        int id = f > 0 ? recordId(IdAllocator.SERIES, parts[0], seriesById::get, "series " + parts[1].trim())
+                                : legacyId(IdAllocator.SERIES, withIds, position, seriesById::get);
+                        currentSeries = new Series(id, parts[f].trim(), parts[f + 1].trim());
                         seasonCounter = 0; // Reset season counter for new series
 
                         // Handle user ratings if present
-                        if (parts.length >= 3 && !parts[2].trim().isEmpty()) {
-                            String[] ratings = parts[2].trim().split("\\|");
-                            for (String r : ratings) {
-                                if (r.contains(":")) {
-                                    try {
-                                        String[] idRating = r.split(":");
-                                        if (idRating.length == 2) {
-                                            currentSeries.addUserRating(
-                                                    Integer.parseInt(idRating[0].trim()),
-                                                    Integer.parseInt(idRating[1].trim())
-                                            );
-                                        }
-                                    } catch (NumberFormatException ex) {
-                                        System.err.println("[WARNING] Could not parse rating: '" + r + "' for series: " + currentSeries.getTitle());
-                                    }
-                                }
-                            }
+                        if (parts.length >= f + 3) {
+                            parseRatings(parts[f + 2].trim(), currentSeries.getTitle(), currentSeries::addUserRating);
                         }
-                        seriesList.add(currentSeries);
+                        addSeries(currentSeries);
                         System.out.println("[INFO] Started loading series: " + currentSeries.getTitle());
                     } else {
                         System.err.println("[ERROR] Malformed SERIES line: " + line);
@@ -368,26 +500,15 @@ public class DataLoader {
                     try {
                         String[] parts = line.split(",", 4);
                         if (parts.length >= 4) {
-                            int duration = Integer.parseInt(parts[0].trim());
-                            String directorName = parts[1].trim();
-                            double imdb = Double.parseDouble(parts[2].trim());
-                            String actorName = parts[3].trim();
-
-                            Director dir = findDirectorByName(directorName);
-                            Actor act = findActorByName(actorName);
-
-                            if (dir == null) {
-                                System.err.println("[ERROR]     Episode for '" + currentSeries.getTitle() + "'. Director not found: '" + directorName + "'. Line: " + line + ". Skipping episode.");
-                                continue; // Skip episode if director not found
-                            }
-                            if (act == null) {
-                                System.err.println("[ERROR]     Episode for '" + currentSeries.getTitle() + "'. Actor not found: '" + actorName + "'. Line: " + line + ". Skipping episode.");
-                                continue; // Skip episode if actor not found
+                            Episode episode = buildEpisode(currentSeries.getTitle(), Integer.parseInt(parts[0].trim()),
+                                    parts[1].trim(), Double.parseDouble(parts[2].trim()), parts[3].trim());
+                            if (episode == null) {
+                                continue; // Director or actor not found
                             }
 
                             if (!currentSeries.getSeasons().isEmpty()) {
                                 currentSeries.getSeasons().get(currentSeries.getSeasons().size() - 1)
-                                        .addEpisode(new Episode(duration, dir, imdb, act));
+                                        .addEpisode(episode);
                                 // System.out.println("      Added episode to season " + currentSeries.getSeasons().size() + " for " + currentSeries.getTitle()); // Uncomment for verbose episode loading
                             } else {
                                 System.err.println("[WARNING]     No season available for episode in series: '" + currentSeries.getTitle() + "'. Line: " + line + ". Skipping episode.");
@@ -409,19 +530,521 @@ public class DataLoader {
         }
     }
 
-    private static Director findDirectorByName(String fullName) {
+    interface RatingTarget {
+        void addUserRating(int userId, int rating, long epochSecond);
+    }
+
+    /**
+     * Creates a movie of a data file record, resolving its director and actor by name.
+     * Shared by every movie format; problems are logged and the movie skipped.
+     * @return The movie (not yet added to the catalog), or null if it was skipped.
+     */
+    static Movie buildMovie(String title, int year, String genre, int duration, String directorName, double imdbRating, String actorName) {
+        return buildMovie(0, title, year, genre, duration, directorName, imdbRating, actorName);
+    }
+
+    // Same, with the id of the record (0: the next free one)
+    static Movie buildMovie(int id, String title, int year, String genre, int duration, String directorName, double imdbRating, String actorName) {
+        Director dir = findDirectorByName(directorName);
+        Actor actor = findActorByName(actorName);
+        if (dir == null) {
+            System.err.println("[ERROR] Movie '" + title + "': Director not found: '" + directorName + "'. Skipping movie.");
+            return null;
+        }
+        if (actor == null) {
+            System.err.println("[ERROR] Movie '" + title + "': Actor not found: '" + actorName + "'. Skipping movie.");
+            return null;
+        }
+        try {
+            return id > 0 ? new Movie(id, title, year, genre, duration, dir, imdbRating, actor)
+                    : new Movie(title, year, genre, duration, dir, imdbRating, actor);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR] Movie '" + title + "': " + e.getMessage() + ". Skipping movie.");
+            return null;
+        }
+    }
+
+    /**
+     * Creates an episode of a data file record, like buildMovie.
+     * @return The episode, or null if it was skipped.
+     */
+    static Episode buildEpisode(String seriesTitle, int duration, String directorName, double imdbRating, String actorName) {
+        Director dir = findDirectorByName(directorName);
+        Actor act = findActorByName(actorName);
+        if (dir == null) {
+            System.err.println("[ERROR]     Episode for '" + seriesTitle + "'. Director not found: '" + directorName + "'. Skipping episode.");
+            return null;
+        }
+        if (act == null) {
+            System.err.println("[ERROR]     Episode for '" + seriesTitle + "'. Actor not found: '" + actorName + "'. Skipping episode.");
+            return null;
+        }
+        try {
+            return new Episode(duration, dir, imdbRating, act);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR]     Episode for '" + seriesTitle + "': " + e.getMessage() + ". Skipping episode.");
+            return null;
+        }
+    }
+
+    /**
+     * Reads the id field of a data file record and marks the id as used.
+     * A taken or invalid id is replaced by the next free one, with a warning.
+     * @param loaded Finds the entity already loaded with an id, or null.
+     */
+    static int recordId(IdAllocator allocator, String field, IntFunction<?> loaded, String what) {
+        try {
+            int id = Integer.parseInt(field.trim());
+            if (id > 0 && loaded.apply(id) == null) {
+                allocator.observe(id);
+                return id;
+            }
+            System.err.println("[WARNING] Id " + id + " of " + what + " is taken or invalid, using a new one");
+        } catch (NumberFormatException e) {
+            System.err.println("[WARNING] Invalid id '" + field.trim() + "' of " + what + ", using a new one");
+        }
+        return allocator.next();
+    }
+
+    /**
+     * Id of a data file record without an id field. In a file written before ids were stored, records are
+     * numbered in file order, as that version did, because its logs refer to those numbers. In a file that
+     * has ids (e.g. a line added by hand), the record gets a new id above every id handed out before,
+     * so it can't take the id of a title that so far exists only in the logs.
+     * @param withIds Whether an earlier record of the file had an id.
+     * @param position The 1-based position of the record in the file.
+     */
+    static int legacyId(IdAllocator allocator, boolean withIds, int position, IntFunction<?> loaded) {
+        if (withIds || loaded.apply(position) != null) {
+            return allocator.next();
+        }
+        allocator.observe(position);
+        return position;
+    }
+
+    // Adds one rating of a data file, logging and skipping an invalid one
+    static void addRating(RatingTarget target, String title, int userId, int rating, long epochSecond) {
+        try {
+            target.addUserRating(userId, rating, epochSecond);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[WARNING] Invalid rating: '" + userId + ":" + rating + "' for: " + title + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the ratings column of Movies.txt / Series.txt.
+     * Entries are separated by '|' and are either "userId:rating" (legacy, no timestamp)
+     * or "userId:rating:epochSecond".
+     */
+    private static void parseRatings(String ratingsStr, String title, RatingTarget target) {
+        if (ratingsStr.isEmpty()) {
+            return;
+        }
+        for (String r : ratingsStr.split("\\|")) {
+            if (!r.contains(":")) {
+                continue;
+            }
+            String[] fields = r.split(":");
+            if (fields.length != 2 && fields.length != 3) {
+                System.err.println("[WARNING] Invalid rating format: '" + r + "' for: " + title);
+                continue;
+            }
+            try {
+                long time = fields.length == 3 ? Long.parseLong(fields[2].trim()) : TrendScore.UNKNOWN_TIME;
+                addRating(target, title, Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()), time);
+            } catch (NumberFormatException e) {
+                System.err.println("[WARNING] Invalid rating: '" + r + "' for: " + title + " - " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Formats ratings for the ratings column, the inverse of parseRatings.
+     * Ratings with a known time are written as "userId:rating:epochSecond".
+     */
+    public static String formatRatings(Map<Integer, Integer> ratings, IntToLongFunction timeOf) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Integer> entry : ratings.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            sb.append(entry.getKey()).append(':').append(entry.getValue());
+            long time = timeOf.applyAsLong(entry.getKey());
+            if (time != TrendScore.UNKNOWN_TIME) {
+                sb.append(':').append(time);
+            }
+        }
+        return sb.toString();
+    }
+
+    static Director findDirectorByName(String fullName) {
         return directors.stream()
                 .filter(d -> (d.getFullName().equalsIgnoreCase(fullName)))
                 .findFirst().orElse(null);
     }
 
-    private static Actor findActorByName(String fullName) {
+    static Actor findActorByName(String fullName) {
         return actors.stream()
                 .filter(a -> (a.getFullName().equalsIgnoreCase(fullName)))
                 .findFirst().orElse(null);
     }
 
+    // Records a user rating; rankings, rating history and views follow through the event stream
+    public static void addMovieRating(Movie movie, int userId, int rating) {
+        long now = Instant.now().getEpochSecond();
+        movie.addUserRating(userId, rating, now);
+        CatalogEvents.publish(CatalogEvent.RatingChanged.of(movie, userId, rating, now));
+    }
+
+    public static void addSeriesRating(Series series, int userId, int rating) {
+        long now = Instant.now().getEpochSecond();
+        series.addUserRating(userId, rating, now);
+        CatalogEvents.publish(CatalogEvent.RatingChanged.of(series, userId, rating, now));
+    }
+
+    // Adds a new movie (not one being loaded) and publishes it to the derived structures
+    public static void addNewMovie(Movie movie) {
+        addMovie(movie);
+        CatalogEvents.publish(new CatalogEvent.MovieAdded(movie));
+    }
+
+    public static void addNewSeries(Series series) {
+        addSeries(series);
+        CatalogEvents.publish(new CatalogEvent.SeriesAdded(series));
+    }
+
+    // Call after seasons were added to or removed from a series
+    public static void seasonsChanged(Series series) {
+        CatalogEvents.publish(new CatalogEvent.SeasonsChanged(series));
+    }
+
     public static User findUserById(int id) {
-        return users.stream().filter(u -> u.getId() == id).findFirst().orElse(null);
+        return userDirectory.findById(id);
+    }
+
+    // Adds a movie to the catalog list and the id index; loaders use this, edits addNewMovie
+    public static void addMovie(Movie movie) {
+        movies.add(movie);
+        moviesById.put(movie.getId(), movie);
+        movieRows.put(movie.getId(), movies.size() - 1);
+    }
+
+    public static void addSeries(Series series) {
+        seriesList.add(series);
+        seriesById.put(series.getId(), series);
+        seriesRows.put(series.getId(), seriesList.size() - 1);
+    }
+
+    // Index of the movie in the movies list, or -1
+    public static int movieRow(Movie movie) {
+        Integer row = movieRows.get(movie.getId());
+        return row != null ? row : -1;
+    }
+
+    public static int seriesRow(Series series) {
+        Integer row = seriesRows.get(series.getId());
+        return row != null ? row : -1;
+    }
+
+    // Rankings, journal, rating history and store follow the loaded catalog from now on (see CatalogEvents)
+    private static void subscribeDerivedStructures() {
+        if (subscribed) {
+            return;
+        }
+        subscribed = true;
+        Rankings.subscribe();
+        CatalogJournal.subscribe();
+        RatingHistory.subscribe();
+        CatalogEvents.subscribe("store", new CatalogListener() {
+            @Override
+            public void movieAdded(CatalogEvent.MovieAdded event) {
+                CatalogStore store = catalogStore;
+                if (store == null) {
+                    return;
+                }
+                try {
+                    synchronized (store) {
+                        store.insert(toRecord(event.getMovie()));
+                    }
+                } catch (IOException e) {
+                    System.err.println("[ERROR] Could not store movie '" + event.getMovie().getTitle() + "': " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens the page-based movie store, which then answers the title and year lookups below.
+     * The store is rebuilt from the loaded movies (the .txt files plus logged edits) unless it holds
+     * the same movie ids: same count and same id checksum. Movies don't change after they are added,
+     * so the same ids mean the same records.
+     * @param path The store file.
+     */
+    public static void openCatalogStore(String path) throws IOException {
+        closeCatalogStore();
+        long start = System.nanoTime();
+        CatalogStore store = new CatalogStore(Paths.get(path), STORE_CACHE_PAGES);
+        long idChecksum = 0;
+        for (Movie movie : movies) {
+            idChecksum += CatalogStore.idHash(movie.getId());
+        }
+        if (store.size() != movies.size() || store.getIdChecksum() != idChecksum) {
+            store.close();
+            Files.delete(Paths.get(path));
+            store = new CatalogStore(Paths.get(path), STORE_CACHE_PAGES);
+            for (Movie movie : movies) {
+                store.insert(toRecord(movie));
+            }
+            store.flush();
+            System.out.printf("[INFO] Imported %d movies into %s in %.1f ms%n", movies.size(), path, (System.nanoTime() - start) / 1_000_000.0);
+        }
+        catalogStore = store;
+        System.out.println("[INFO] Catalog store: " + store.getStats());
+    }
+
+    public static void closeCatalogStore() {
+        if (catalogStore != null) {
+            try {
+                catalogStore.close();
+            } catch (IOException e) {
+                System.err.println("[ERROR] Error closing the catalog store: " + e.getMessage());
+            }
+            catalogStore = null;
+        }
+    }
+
+    public static MovieRecord toRecord(Movie movie) {
+        return new MovieRecord(movie.getId(), movie.getTitle(), movie.getYear(), movie.getGenre(), movie.getDuration(),
+                movie.getDirector().getFullName(), movie.getImdbRating(), movie.getLeadActor().getFullName());
+    }
+
+    /**
+     * The movie with this title (ignoring case), or null. Looked up in the store's title index when it is open;
+     * on a miss the loaded movies are scanned, since the store subscriber adds a new movie only after it is listed.
+     */
+    public static Movie findMovieByTitle(String title) {
+        CatalogStore store = catalogStore;
+        if (store != null) {
+            List<Movie> candidates = fromStore(store, s -> s.findByTitlePrefix(title, STORE_TITLE_CANDIDATES));
+            if (candidates != null) {
+                // Same normalized title sorts first among the prefix matches
+                for (Movie movie : candidates) {
+                    if (movie.getTitle().equalsIgnoreCase(title)) {
+                        return movie;
+                    }
+                }
+            }
+        }
+        for (Movie movie : movies) {
+            if (movie.getTitle().equalsIgnoreCase(title)) {
+                return movie;
+            }
+        }
+        return null;
+    }
+
+    // Movies with from <= year <= to, at most limit of them; in year order when the store is open
+    public static List<Movie> findMoviesByYear(int from, int to, int limit) {
+        CatalogStore store = catalogStore;
+        List<Movie> found = store != null ? fromStore(store, s -> s.findByYear(from, to, limit)) : null;
+        if (found != null) {
+            return found;
+        }
+        return movies.stream().filter(m -> m.getYear() >= from && m.getYear() <= to).limit(limit).collect(Collectors.toList());
+    }
+
+    private interface StoreQuery {
+        List<MovieRecord> run(CatalogStore store) throws IOException;
+    }
+
+    // The loaded movies of a store query, or null if the store failed (the caller scans the list instead)
+    private static List<Movie> fromStore(CatalogStore store, StoreQuery query) {
+        List<MovieRecord> records;
+        try {
+            synchronized (store) { // Not thread-safe; the store subscriber inserts on its own thread
+                records = query.run(store);
+            }
+        } catch (IOException e) {
+            System.err.println("[ERROR] Catalog store lookup failed: " + e.getMessage());
+            return null;
+        }
+        List<Movie> found = new ArrayList<>(records.size());
+        for (MovieRecord record : records) {
+            Movie movie = findMovieById(record.getId());
+            if (movie != null) {
+                found.add(movie);
+            }
+        }
+        return found;
+    }
+
+    public static Movie findMovieById(int id) {
+        return moviesById.get(id);
+    }
+
+    public static Series findSeriesById(int id) {
+        return seriesById.get(id);
+    }
+
+    /**
+     * Makes what the JSON Lines feed added part of the data files: its people are appended to
+     * Actors.txt / Directors.txt and a compaction writes its titles. The feed is then moved aside
+     * (Catalog.jsonl.imported), so the next launch doesn't add its titles again with new ids.
+     * If any step fails, the feed is kept and imported again next time (JsonCatalogLoader skips what exists).
+     */
+    private static void importFeed(String basePath, List<Actor> newActors, List<Director> newDirectors) {
+        Path feed = null;
+        for (String suffix : DATA_FILE_SUFFIXES) {
+            if (Files.exists(Paths.get(basePath + JSON_LINES_FILE + suffix))) {
+                feed = Paths.get(basePath + JSON_LINES_FILE + suffix);
+                break;
+            }
+        }
+        try {
+            appendLines(basePath + "Actors.txt", newActors, actor -> String.join(",", actor.getFirstName(), actor.getLastName(),
+                    actor.getBirthDate().toString(), String.valueOf(actor.getGender()), actor.getRace()));
+            appendLines(basePath + "Directors.txt", newDirectors, director -> String.join(",", director.getFirstName(),
+                    director.getLastName(), director.getBirthDate().toString(), String.valueOf(director.getGender()),
+                    String.join("|", director.getBestWorks())));
+            if (!CatalogJournal.compact()) {
+                System.err.println("[WARNING] " + feed + " is kept and imported again next time");
+                return;
+            }
+            Files.move(feed, feed.resolveSibling(feed.getFileName() + ".imported"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("[INFO] Imported " + feed + " into the data files and moved it to " + feed.getFileName() + ".imported");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[ERROR] Could not import " + feed + ", it is kept and imported again next time: " + e.getMessage());
+        }
+    }
+
+    // Appends one line per entity to a plain text data file, forced to disk
+    private static <T> void appendLines(String path, List<T> entities, Function<T, String> format) throws IOException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (!Files.exists(Paths.get(path)) && dataFileExists(path)) {
+            throw new IOException(path + " is compressed and can't be appended to");
+        }
+        StringBuilder sb = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    sb.append(System.lineSeparator()); // The file doesn't end with a line break
+                }
+            }
+            for (T entity : entities) {
+                sb.append(format.apply(entity)).append(System.lineSeparator());
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            long position = size;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the id limits stored by earlier runs and stores every new reservation from now on.
+     * Reservations made before this (e.g. users loaded for the login) are stored right away.
+     * @param path The id store file (Ids.txt); created if missing.
+     */
+    /**
+     * Takes an exclusive lock on the data directory for the rest of the process. The logs, the checkpoint,
+     * Ids.txt and the data files are written by whoever has the directory open (the application, ImportRatings,
+     * ExportCatalog, RatingHistoryTool), each from its own positions, so two processes would overwrite each
+     * other's events. Fails at once if another process holds the lock.
+     */
+    private static synchronized void lockDataDirectory(String basePath) throws IOException {
+        Path path = Paths.get(basePath + LOCK_FILE).toAbsolutePath();
+        if (path.equals(lockedPath)) {
+            return; // Loaded again by this process
+        }
+        unlockDataDirectory();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("O fakelos dedomenon xrisimopoieitai idi apo allo programma (" + path + ")");
+        }
+        lockChannel = channel;
+        dataLock = lock;
+        lockedPath = path;
+    }
+
+    // Releases the data directory, e.g. before loading another one
+    public static synchronized void unlockDataDirectory() {
+        if (dataLock == null) {
+            return;
+        }
+        try {
+            dataLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("[ERROR] Error releasing " + lockedPath + ": " + e.getMessage());
+        }
+        dataLock = null;
+        lockChannel = null;
+        lockedPath = null;
+    }
+
+    private static void openIdStore(String path) {
+        idStorePath = Paths.get(path);
+        synchronized (idLimits) {
+            idLimits.clear();
+            if (Files.exists(idStorePath)) {
+                try {
+                    for (String line : Files.readAllLines(idStorePath)) {
+                        String[] parts = line.split(",");
+                        if (parts.length < 2) continue;
+                        idLimits.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    System.err.println("[ERROR] Error reading ids from " + path + ": " + e.getMessage());
+                }
+            }
+            for (IdAllocator allocator : IdAllocator.all()) {
+                idLimits.merge(allocator.getName(), allocator.getReservedLimit(), Math::max);
+            }
+            saveIdLimits();
+        }
+        IdAllocator.setReservationListener((allocator, limit) -> {
+            synchronized (idLimits) {
+                idLimits.merge(allocator.getName(), limit, Math::max);
+                saveIdLimits();
+            }
+        });
+    }
+
+    private static void restoreIdLimits(IdAllocator... allocators) {
+        synchronized (idLimits) {
+            for (IdAllocator allocator : allocators) {
+                allocator.restore(idLimits.getOrDefault(allocator.getName(), 1));
+            }
+        }
+    }
+
+    // Rewrites the small id store through a temporary file, so a crash never leaves it half written
+    private static void saveIdLimits() {
+        StringBuilder sb = new StringBuilder();
+        idLimits.forEach((name, limit) -> sb.append(name).append(',').append(limit).append(System.lineSeparator()));
+        try {
+            Path temp = idStorePath.resolveSibling(idStorePath.getFileName() + ".tmp");
+            Files.write(temp, sb.toString().getBytes());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true); // On disk before the rename, or a crash could leave an empty store
+            }
+            Files.move(temp, idStorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[ERROR] Error saving ids to " + idStorePath + ": " + e.getMessage());
+        }
     }
 }
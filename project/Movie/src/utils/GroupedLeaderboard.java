@@ -0,0 +1,79 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * One Leaderboard per group key (e.g. genre or decade), maintained incrementally.
+ * Remembers the key each entity was filed under, so an entity whose key changes
+ * is moved between groups without rescanning the catalog.
+ * Thread-safe like Leaderboard.
+ * @param <K> The group key type.
+ * @param <T> The entity type (Movie or Series).
+ */
+public class GroupedLeaderboard<K extends Comparable<K>, T> {
+
+    private final ToIntFunction<T> idFunction;
+    private final ToDoubleFunction<T> scoreFunction;
+    private final Function<T, K> keyFunction; // May return null for entities that belong to no group
+    private final Map<K, Leaderboard<T>> groups;
+    private final Map<Integer, K> keysById;
+
+    public GroupedLeaderboard(ToIntFunction<T> idFunction, ToDoubleFunction<T> scoreFunction, Function<T, K> keyFunction) {
+        this.idFunction = idFunction;
+        this.scoreFunction = scoreFunction;
+        this.keyFunction = keyFunction;
+        this.groups = new TreeMap<>();
+        this.keysById = new HashMap<>();
+    }
+
+    /**
+     * Re-ranks a single entity in its group. O(log n).
+     * @param item The entity that was added or changed.
+     */
+    public synchronized void update(T item) {
+        int id = idFunction.applyAsInt(item);
+        K key = keyFunction.apply(item);
+        K oldKey = keysById.get(id);
+
+        if (oldKey != null && !oldKey.equals(key)) {
+            Leaderboard<T> oldGroup = groups.get(oldKey);
+            oldGroup.remove(item);
+            if (oldGroup.size() == 0) {
+                groups.remove(oldKey);
+            }
+            keysById.remove(id);
+        }
+        if (key == null) {
+            return;
+        }
+
+        groups.computeIfAbsent(key, k -> new Leaderboard<>(idFunction, scoreFunction, 0.0)).update(item);
+        keysById.put(id, key);
+    }
+
+    /**
+     * Returns the best k entities of one group in ranking order. O(k).
+     */
+    public synchronized List<T> top(K key, int k) {
+        Leaderboard<T> group = groups.get(key);
+        return group != null ? group.top(k) : Collections.emptyList();
+    }
+
+    // Group keys in natural order
+    public synchronized List<K> keys() {
+        return new ArrayList<>(groups.keySet());
+    }
+
+    public synchronized void clear() {
+        groups.clear();
+        keysById.clear();
+    }
+}
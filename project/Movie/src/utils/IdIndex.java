@@ -0,0 +1,38 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Dense id -> entity array. Ids come from an IdAllocator, so they are small and
+ * mostly contiguous, and get(id) is a plain array read.
+ * Reads take no lock; writes are serialized and publish a grown array as a whole.
+ * @param <T> The entity type.
+ */
+public class IdIndex<T> {
+    private volatile Object[] entities = new Object[64];
+
+    public synchronized void put(int id, T entity) {
+        Object[] current = entities;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id] = entity;
+        entities = current; // Publishes the write (and a grown array) to readers
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        Object[] current = entities;
+        return id >= 0 && id < current.length ? (T) current[id] : null;
+    }
+
+    public synchronized void remove(int id) {
+        if (id >= 0 && id < entities.length) {
+            entities[id] = null;
+        }
+    }
+
+    public synchronized void clear() {
+        entities = new Object[64];
+    }
+}
@@ -0,0 +1,384 @@
+package utils;
+
+import exceptions.MalformedJsonException;
+import model.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads catalog records from JSON Lines, one object per line, next to the legacy text files:
+ *   {"type":"actor","firstName":..,"lastName":..,"birthDate":"1974-11-11","gender":"M","race":..}
+ *   {"type":"director","firstName":..,"lastName":..,"birthDate":..,"gender":..,"bestWorks":[..]}
+ *   {"type":"movie","title":..,"year":..,"genre":..,"duration":..,"director":"Full Name","imdb":..,
+ *    "leadActor":"Full Name","ratings":[{"user":..,"rating":..,"time":..}]}
+ *   {"type":"series","title":..,"genre":..,"ratings":[..],
+ *    "seasons":[{"number":..,"year":..,"episodes":[{"duration":..,"director":..,"imdb":..,"leadActor":..}]}]}
+ * This is the format CatalogExporter writes; fields it adds (ids, aggregates) are ignored, and
+ * loaded titles get new ids. People must come before the titles that name them, as with the text files.
+ * A movie with the title and year of one already loaded, or a series with its title, is skipped:
+ * DataLoader moves the feed aside once it is imported, but a crash in between would add it again.
+ *
+ * Records are read token by token and turned into model objects one at a time, so neither the
+ * file nor a document tree is held in memory. Names are resolved and values validated by the
+ * same DataLoader methods the text formats use. A malformed line is logged and skipped.
+ */
+public class JsonCatalogLoader {
+
+    // Fields of one record, collected because JSON doesn't fix their order
+    private static class Record {
+        String type;
+        String title;
+        String genre;
+        Integer year;
+        Integer duration;
+        Double imdb;
+        String director;
+        String leadActor;
+        String firstName;
+        String lastName;
+        String birthDate;
+        String gender;
+        String race;
+        List<String> bestWorks = new ArrayList<>();
+        final RatingBuffer ratings = new RatingBuffer();
+        final List<Season> seasons = new ArrayList<>();
+    }
+
+    // Ratings of the current record in primitive arrays, until the title they belong to exists
+    private static class RatingBuffer {
+        int[] users = new int[16];
+        int[] ratings = new int[16];
+        long[] times = new long[16];
+        int size;
+
+        void add(int user, int rating, long time) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                ratings = Arrays.copyOf(ratings, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+            }
+            users[size] = user;
+            ratings[size] = rating;
+            times[size] = time;
+            size++;
+        }
+
+        void applyTo(DataLoader.RatingTarget target, String title) {
+            for (int i = 0; i < size; i++) {
+                DataLoader.addRating(target, title, users[i], ratings[i], times[i]);
+            }
+        }
+    }
+
+    private JsonCatalogLoader() {
+    }
+
+    /**
+     * Adds the records of a JSON Lines file to the catalog.
+     * @param path The file; a compressed copy is read like the text files (see DataLoader.openDataFile).
+     * @return The number of records added.
+     */
+    public static int load(String path) throws IOException {
+        int loaded = 0;
+        int skipped = 0;
+        Set<String> titles = new HashSet<>();
+        DataLoader.movies.forEach(movie -> titles.add(movieKey(movie.getTitle(), movie.getYear())));
+        DataLoader.seriesList.forEach(series -> titles.add(seriesKey(series.getTitle())));
+        try (JsonReader reader = new JsonReader(DataLoader.openDataFile(path))) {
+            reader.setLineDelimited(true);
+            while (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+                int line = reader.getLine();
+                try {
+                    if (apply(readRecord(reader), line, titles)) {
+                        loaded++;
+                    } else {
+                        skipped++;
+                    }
+                } catch (MalformedJsonException e) {
+                    System.err.println("[ERROR] Skipping malformed line " + line + " of " + path + ": " + e.getMessage());
+                    reader.skipToNextLine();
+                    skipped++;
+                }
+            }
+        }
+        System.out.println("Loaded " + loaded + " records from " + path + (skipped > 0 ? " (" + skipped + " skipped)" : ""));
+        return loaded;
+    }
+
+    private static Record readRecord(JsonReader reader) throws IOException {
+        Record record = new Record();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "type":
+                    record.type = optionalString(reader);
+                    break;
+                case "title":
+                    record.title = optionalString(reader);
+                    break;
+                case "genre":
+                    record.genre = optionalString(reader);
+                    break;
+                case "year":
+                    record.year = reader.nextInt();
+                    break;
+                case "duration":
+                    record.duration = reader.nextInt();
+                    break;
+                case "imdb":
+                    record.imdb = reader.nextDouble();
+                    break;
+                case "director":
+                    record.director = optionalString(reader);
+                    break;
+                case "leadActor":
+                    record.leadActor = optionalString(reader);
+                    break;
+                case "firstName":
+                    record.firstName = optionalString(reader);
+                    break;
+                case "lastName":
+                    record.lastName = optionalString(reader);
+                    break;
+                case "birthDate":
+                    record.birthDate = optionalString(reader);
+                    break;
+                case "gender":
+                    record.gender = optionalString(reader);
+                    break;
+                case "race":
+                    record.race = optionalString(reader);
+                    break;
+                case "bestWorks":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        record.bestWorks.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                case "ratings":
+                    readRatings(reader, record.ratings);
+                    break;
+                case "seasons":
+                    readSeasons(reader, record);
+                    break;
+                default:
+                    reader.skipValue(); // id, aggregates and anything else
+            }
+        }
+        reader.endObject();
+        return record;
+    }
+
+    private static void readRatings(JsonReader reader, RatingBuffer ratings) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Integer user = null;
+            Integer rating = null;
+            long time = TrendScore.UNKNOWN_TIME;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "user":
+                    case "userId":
+                        user = reader.nextInt();
+                        break;
+                    case "rating":
+                        rating = reader.nextInt();
+                        break;
+                    case "time":
+                        time = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (user == null || rating == null) {
+                System.err.println("[WARNING] Rating without user or score at line " + reader.getLine() + ". Skipping rating.");
+                continue;
+            }
+            ratings.add(user, rating, time);
+        }
+        reader.endArray();
+    }
+
+    // Episodes are built as they are read; the title may not have been read yet and is only used in messages
+    private static void readSeasons(JsonReader reader, Record record) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Integer number = null;
+            Integer year = null;
+            List<Episode> episodes = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "number":
+                        number = reader.nextInt();
+                        break;
+                    case "year":
+                        year = reader.nextInt();
+                        break;
+                    case "episodes":
+                        readEpisodes(reader, record, episodes);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (year == null) {
+                System.err.println("[ERROR] Season without a year at line " + reader.getLine() + ". Skipping season.");
+                continue;
+            }
+            Season season = new Season(number != null ? number : record.seasons.size() + 1, year);
+            episodes.forEach(season::addEpisode);
+            record.seasons.add(season);
+        }
+        reader.endArray();
+    }
+
+    private static void readEpisodes(JsonReader reader, Record record, List<Episode> episodes) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Integer duration = null;
+            Double imdb = null;
+            String director = null;
+            String leadActor = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "duration":
+                        duration = reader.nextInt();
+                        break;
+                    case "imdb":
+                        imdb = reader.nextDouble();
+                        break;
+                    case "director":
+                        director = optionalString(reader);
+                        break;
+                    case "leadActor":
+                        leadActor = optionalString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            String seriesTitle = record.title != null ? record.title : "?";
+            if (duration == null || imdb == null || director == null || leadActor == null) {
+                System.err.println("[ERROR] Invalid episode for '" + seriesTitle + "' at line " + reader.getLine() + " (missing fields). Skipping episode.");
+                continue;
+            }
+            Episode episode = DataLoader.buildEpisode(seriesTitle, duration, director.trim(), imdb, leadActor.trim());
+            if (episode != null) {
+                episodes.add(episode);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static String movieKey(String title, int year) {
+        return "M" + title.trim().toLowerCase() + "\t" + year;
+    }
+
+    private static String seriesKey(String title) {
+        return "S" + title.trim().toLowerCase();
+    }
+
+    // Validates a complete record and adds it to the catalog; problems are logged
+    private static boolean apply(Record r, int line, Set<String> titles) {
+        if (r.type == null) {
+            System.err.println("[ERROR] Record without a type at line " + line + ". Skipping record.");
+            return false;
+        }
+        switch (r.type) {
+            case "actor":
+            case "director":
+                return applyPerson(r, line);
+            case "movie": {
+                if (r.title == null || r.year == null || r.genre == null || r.duration == null
+                        || r.director == null || r.imdb == null || r.leadActor == null) {
+                    System.err.println("[ERROR] Invalid movie at line " + line + " (missing fields). Skipping movie.");
+                    return false;
+                }
+                if (!titles.add(movieKey(r.title, r.year))) {
+                    System.err.println("[WARNING] Movie '" + r.title.trim() + "' (" + r.year + ") already exists. Skipping line " + line + ".");
+                    return false;
+                }
+                Movie movie = DataLoader.buildMovie(r.title.trim(), r.year, r.genre.trim(), r.duration,
+                        r.director.trim(), r.imdb, r.leadActor.trim());
+                if (movie == null) {
+                    return false;
+                }
+                r.ratings.applyTo(movie::addUserRating, movie.getTitle());
+                DataLoader.addMovie(movie);
+                return true;
+            }
+            case "series": {
+                if (r.title == null || r.genre == null) {
+                    System.err.println("[ERROR] Invalid series at line " + line + " (missing title or genre). Skipping series.");
+                    return false;
+                }
+                if (!titles.add(seriesKey(r.title))) {
+                    System.err.println("[WARNING] Series '" + r.title.trim() + "' already exists. Skipping line " + line + ".");
+                    return false;
+                }
+                Series series = new Series(r.title.trim(), r.genre.trim());
+                r.ratings.applyTo(series::addUserRating, series.getTitle());
+                r.seasons.forEach(series::addSeason);
+                DataLoader.addSeries(series);
+                return true;
+            }
+            default:
+                System.err.println("[ERROR] Unknown record type '" + r.type + "' at line " + line + ". Skipping record.");
+                return false;
+        }
+    }
+
+    private static boolean applyPerson(Record r, int line) {
+        if (r.firstName == null || r.lastName == null || r.birthDate == null || r.gender == null || r.gender.trim().isEmpty()) {
+            System.err.println("[ERROR] Invalid " + r.type + " at line " + line + " (missing fields). Skipping.");
+            return false;
+        }
+        String fullName = r.firstName.trim() + " " + r.lastName.trim();
+        LocalDate birthDate;
+        try {
+            birthDate = LocalDate.parse(r.birthDate.trim());
+        } catch (DateTimeParseException e) {
+            System.err.println("[ERROR] Invalid birth date for " + fullName + " at line " + line + ": " + e.getMessage());
+            return false;
+        }
+        char gender = r.gender.trim().charAt(0);
+        if (r.type.equals("actor")) {
+            if (DataLoader.findActorByName(fullName) != null) {
+                System.err.println("[WARNING] Actor " + fullName + " already exists. Skipping line " + line + ".");
+                return false;
+            }
+            DataLoader.actors.add(new Actor(r.firstName.trim(), r.lastName.trim(), birthDate, gender, r.race != null ? r.race.trim() : ""));
+        } else {
+            if (DataLoader.findDirectorByName(fullName) != null) {
+                System.err.println("[WARNING] Director " + fullName + " already exists. Skipping line " + line + ".");
+                return false;
+            }
+            DataLoader.directors.add(new Director(r.firstName.trim(), r.lastName.trim(), birthDate, gender, r.bestWorks));
+        }
+        return true;
+    }
+
+    private static String optionalString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
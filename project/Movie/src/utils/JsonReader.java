@@ -0,0 +1,393 @@
+package utils;
+
+import exceptions.MalformedJsonException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pull parser for JSON: the caller asks for the next token and reads values one at a time,
+ * so no document tree is built and memory doesn't depend on the size of the input.
+ * Top-level values may follow each other, as in JSON Lines. After a syntax error,
+ * skipToNextLine drops the rest of the line so reading can continue with the next record.
+ */
+public class JsonReader implements Closeable {
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    // Where the reader is inside the current object or array
+    private enum Scope { EMPTY_OBJECT, NAME_READ, NONEMPTY_OBJECT, EMPTY_ARRAY, NONEMPTY_ARRAY }
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private final StringBuilder text = new StringBuilder();
+    private Token peeked;
+    private String value; // Text of a peeked NAME, STRING, NUMBER or BOOLEAN
+    private boolean lineDelimited;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * JSON Lines mode: a value must end on the line it started, so a cut-off record is
+     * reported at its own line break and skipToNextLine continues with the next record.
+     */
+    public void setLineDelimited(boolean lineDelimited) {
+        this.lineDelimited = lineDelimited;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c = nextNonWhitespace();
+        Scope scope = scopes.peek();
+        if (scope == null) {
+            if (c == -1) {
+                return peeked = Token.END_DOCUMENT;
+            }
+            return peeked = readValue(c);
+        }
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (scope == Scope.NONEMPTY_ARRAY) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                replaceScope(Scope.NONEMPTY_ARRAY);
+                return peeked = readValue(c);
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == Scope.NONEMPTY_OBJECT) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                expect(c, '"');
+                value = readString();
+                replaceScope(Scope.NAME_READ);
+                return peeked = Token.NAME;
+            default: // NAME_READ
+                expect(c, ':');
+                replaceScope(Scope.NONEMPTY_OBJECT);
+                return peeked = readValue(nextNonWhitespace());
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        scopes.push(Scope.EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        scopes.pop();
+    }
+
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        scopes.push(Scope.EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        scopes.pop();
+    }
+
+    public String nextName() throws IOException {
+        consume(Token.NAME);
+        return value;
+    }
+
+    public String nextString() throws IOException {
+        if (peek() == Token.NUMBER) {
+            consume(Token.NUMBER); // Numbers are accepted where text is expected
+            return value;
+        }
+        consume(Token.STRING);
+        return value;
+    }
+
+    public double nextDouble() throws IOException {
+        consume(Token.NUMBER);
+        return Double.parseDouble(value);
+    }
+
+    public long nextLong() throws IOException {
+        consume(Token.NUMBER);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            double number = Double.parseDouble(value); // e.g. 5.0 or 1e3
+            if (number != Math.rint(number) || Math.abs(number) > Long.MAX_VALUE) {
+                throw error("Expected a whole number but was " + value);
+            }
+            return (long) number;
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long number = nextLong();
+        if (number != (int) number) {
+            throw error("Number out of range: " + number);
+        }
+        return (int) number;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        consume(Token.BOOLEAN);
+        return Boolean.parseBoolean(value);
+    }
+
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+    }
+
+    // Skips the next value, including everything nested in it
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case END_DOCUMENT:
+                    throw error("Unexpected end of input");
+                default:
+                    peeked = null; // A name or a scalar
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Drops everything up to the end of the current line and starts over at the top level,
+     * e.g. after a malformed JSON Lines record.
+     */
+    public void skipToNextLine() throws IOException {
+        peeked = null;
+        scopes.clear();
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && c != '\n');
+        if (c == '\n') {
+            line++;
+        }
+    }
+
+    // Line of the input the reader is on, for error messages
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void consume(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw error("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private Token readValue(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                value = readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                value = "true";
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                value = "false";
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    value = readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw error(c == -1 ? "Unexpected end of input" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1 || c == '\n') {
+                if (c == '\n') {
+                    position--; // Left for skipToNextLine, so the next record isn't lost
+                }
+                throw error("Unterminated string");
+            }
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) c);
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid \\u escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                    break;
+                default:
+                    throw error("Invalid escape \\" + (char) c);
+            }
+        }
+    }
+
+    private String readNumber(int first) throws IOException {
+        text.setLength(0);
+        text.append((char) first);
+        while (true) {
+            int c = peekChar();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append((char) read());
+            } else {
+                break;
+            }
+        }
+        String number = text.toString();
+        try {
+            Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+        return number;
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    private void expect(int c, char expected) throws IOException {
+        if (c != expected) {
+            throw error("Expected '" + expected + "' but was " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+    }
+
+    private void replaceScope(Scope scope) {
+        scopes.pop();
+        scopes.push(scope);
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '\n') {
+                if (lineDelimited && !scopes.isEmpty()) {
+                    position--; // Left for skipToNextLine
+                    throw error("Record ends before its value is complete");
+                }
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != '\uFEFF') { // Also skips a byte order mark
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peekChar() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private MalformedJsonException error(String message) {
+        return new MalformedJsonException(message + " at line " + line);
+    }
+}
@@ -0,0 +1,56 @@
+package utils;
+
+/**
+ * Latency distribution with one bucket per power of two microseconds (1 µs … ~1 h),
+ * so recording is O(1) and percentiles are accurate to within a factor of two
+ * with constant memory, however many samples are recorded.
+ * Not thread-safe; record and read from one thread (e.g. the FX thread).
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32;
+
+    private final long[] counts = new long[BUCKETS]; // counts[b] = samples below 2^b µs (and at least 2^(b-1) µs)
+    private long total;
+    private long maxNanos;
+    private long sumNanos;
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts[bucket]++;
+        total++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public double getMeanMillis() {
+        return total == 0 ? 0.0 : sumNanos / (double) total / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, capped at the maximum seen.
+     * @param percent Between 0 and 100.
+     */
+    public double getPercentileMillis(double percent) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min((1L << b) / 1_000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+}
@@ -0,0 +1,112 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ordered ranking of catalog entities that is maintained incrementally.
+ * Only entities whose score reaches the minimum are kept, ordered by score (descending)
+ * and then by id, so reading the top k entries never needs a full re-sort.
+ * Every qualifying entity is kept, not just the first k: the Top tab lists all of them, and when
+ * an entity's score drops, the next one moves up without rescanning the catalog.
+ * Thread-safe: updates come from the rankings' event thread while the UI reads the top entries.
+ * @param <T> The entity type (Movie or Series).
+ */
+public class Leaderboard<T> {
+
+    private static class Entry<T> {
+        private final int id;
+        private final double score;
+        private final T item;
+
+        private Entry(int id, double score, T item) {
+            this.id = id;
+            this.score = score;
+            this.item = item;
+        }
+    }
+
+    private final ToIntFunction<T> idFunction;
+    private final ToDoubleFunction<T> scoreFunction;
+    private final double minScore;
+    private final TreeSet<Entry<T>> ordered;
+    private final Map<Integer, Entry<T>> entriesById; // id -> current entry, needed to remove the old position
+
+    public Leaderboard(ToIntFunction<T> idFunction, ToDoubleFunction<T> scoreFunction, double minScore) {
+        this.idFunction = idFunction;
+        this.scoreFunction = scoreFunction;
+        this.minScore = minScore;
+        this.ordered = new TreeSet<>(Comparator.<Entry<T>>comparingDouble(e -> -e.score)
+                .thenComparingInt(e -> e.id));
+        this.entriesById = new HashMap<>();
+    }
+
+    /**
+     * Re-ranks a single entity after its score may have changed. O(log n).
+     * @param item The entity that was added or changed.
+     */
+    public synchronized void update(T item) {
+        int id = idFunction.applyAsInt(item);
+        double score = scoreFunction.applyAsDouble(item);
+
+        Entry<T> old = entriesById.get(id);
+        if (old != null) {
+            if (old.score == score && old.item == item) {
+                return; // Position unchanged
+            }
+            ordered.remove(old);
+            entriesById.remove(id);
+        }
+
+        if (score >= minScore) {
+            Entry<T> entry = new Entry<>(id, score, item);
+            ordered.add(entry);
+            entriesById.put(id, entry);
+        }
+    }
+
+    public synchronized void remove(T item) {
+        Entry<T> old = entriesById.remove(idFunction.applyAsInt(item));
+        if (old != null) {
+            ordered.remove(old);
+        }
+    }
+
+    /**
+     * Returns the best k entities in ranking order. O(k).
+     * @param k The maximum number of entities to return.
+     */
+    public synchronized List<T> top(int k) {
+        List<T> result = new ArrayList<>(Math.min(k, ordered.size()));
+        Iterator<Entry<T>> it = ordered.iterator();
+        while (it.hasNext() && result.size() < k) {
+            result.add(it.next().item);
+        }
+        return result;
+    }
+
+    // Every kept entity in ranking order. O(size).
+    public synchronized List<T> all() {
+        List<T> result = new ArrayList<>(ordered.size());
+        for (Entry<T> entry : ordered) {
+            result.add(entry.item);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        ordered.clear();
+        entriesById.clear();
+    }
+
+    public synchronized int size() {
+        return ordered.size();
+    }
+}
@@ -0,0 +1,136 @@
+package utils;
+
+import model.Movie;
+import model.Series;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Leaderboards of the catalog. After loading they follow the catalog through its event stream
+ * (see CatalogEvents), on their own event thread.
+ */
+public class Rankings {
+    // Same criteria as the Top tab: movies by IMDb rating, series by average user rating, both >= 7.5
+    public static final double TOP_MIN_SCORE = 7.5;
+    public static final int GROUP_LIMIT = 50; // "Top 50" per genre / decade
+
+    public static final Leaderboard<Movie> topMovies =
+            new Leaderboard<>(Movie::getId, Movie::getImdbRating, TOP_MIN_SCORE);
+    public static final Leaderboard<Series> topSeries =
+            new Leaderboard<>(Series::getId, Series::getAverageUserRating, TOP_MIN_SCORE);
+
+    // "Trending now": decayed rating activity, see TrendScore
+    public static final Leaderboard<Movie> trendingMovies =
+            new Leaderboard<>(Movie::getId, movie -> movie.getTrendScore().getRankKey(), -Double.MAX_VALUE);
+    public static final Leaderboard<Series> trendingSeries =
+            new Leaderboard<>(Series::getId, series -> series.getTrendScore().getRankKey(), -Double.MAX_VALUE);
+
+    // Materialized per-genre and per-decade rankings (no minimum score)
+    public static final GroupedLeaderboard<String, Movie> moviesByGenre =
+            new GroupedLeaderboard<>(Movie::getId, Movie::getImdbRating, Movie::getGenre);
+    public static final GroupedLeaderboard<Integer, Movie> moviesByDecade =
+            new GroupedLeaderboard<>(Movie::getId, Movie::getImdbRating, movie -> decadeOf(movie.getYear()));
+    public static final GroupedLeaderboard<String, Series> seriesByGenre =
+            new GroupedLeaderboard<>(Series::getId, Series::getAverageUserRating, Series::getGenre);
+    public static final GroupedLeaderboard<Integer, Series> seriesByDecade =
+            new GroupedLeaderboard<>(Series::getId, Series::getAverageUserRating, Rankings::seriesDecade);
+
+    private static final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+    private static boolean subscribed;
+
+    private static final CatalogListener LISTENER = new CatalogListener() {
+        @Override
+        public void movieAdded(CatalogEvent.MovieAdded event) {
+            movieChanged(event.getMovie());
+            notifyUpdated();
+        }
+
+        @Override
+        public void seriesAdded(CatalogEvent.SeriesAdded event) {
+            seriesChanged(event.getSeries());
+            notifyUpdated();
+        }
+
+        @Override
+        public void ratingChanged(CatalogEvent.RatingChanged event) {
+            if (event.isMovie()) {
+                movieChanged(event.getMovie());
+            } else {
+                seriesChanged(event.getSeries());
+            }
+            notifyUpdated();
+        }
+
+        @Override
+        public void seasonsChanged(CatalogEvent.SeasonsChanged event) {
+            seriesChanged(event.getSeries()); // The decade follows the first season's year
+            notifyUpdated();
+        }
+    };
+
+    // Keeps the rankings up to date from now on; once, after rebuild
+    public static void subscribe() {
+        if (!subscribed) {
+            subscribed = true;
+            CatalogEvents.subscribe("rankings", LISTENER);
+        }
+    }
+
+    /**
+     * Runs after every event the rankings have applied, on their event thread,
+     * e.g. so a view re-reads them once they include the change.
+     */
+    public static void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    private static void notifyUpdated() {
+        updateListeners.forEach(Runnable::run);
+    }
+
+    // Builds every ranking in one pass over the loaded catalog
+    public static void rebuild() {
+        topMovies.clear();
+        topSeries.clear();
+        trendingMovies.clear();
+        trendingSeries.clear();
+        moviesByGenre.clear();
+        moviesByDecade.clear();
+        seriesByGenre.clear();
+        seriesByDecade.clear();
+        for (Movie movie : DataLoader.movies) {
+            movieChanged(movie);
+        }
+        for (Series series : DataLoader.seriesList) {
+            seriesChanged(series);
+        }
+    }
+
+    // Call after a movie is added or its rating changes
+    public static void movieChanged(Movie movie) {
+        topMovies.update(movie);
+        trendingMovies.update(movie);
+        moviesByGenre.update(movie);
+        moviesByDecade.update(movie);
+    }
+
+    // Call after a series is added, its rating changes or its seasons change (the decade comes from season 1)
+    public static void seriesChanged(Series series) {
+        topSeries.update(series);
+        trendingSeries.update(series);
+        seriesByGenre.update(series);
+        seriesByDecade.update(series);
+    }
+
+    public static int decadeOf(int year) {
+        return year / 10 * 10;
+    }
+
+    private static Integer seriesDecade(Series series) {
+        if (series.getSeasonCount() == 0) {
+            return null;
+        }
+        return decadeOf(series.getFirstSeasonYear());
+    }
+}
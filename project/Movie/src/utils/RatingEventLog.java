@@ -0,0 +1,199 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of rating events in fixed-size binary records:
+ * [title key][user id][epoch second << 4 | rating][CRC32C of the first 16 bytes], 20 bytes each.
+ * The title key is the title's id, with the top bit set for series.
+ * Records are never changed or removed, so an event is addressed by its sequence number (its
+ * position in the file). Damaged records at the end (a crash during a write) are cut off on open;
+ * a damaged record elsewhere is skipped when read, with a warning.
+ * Appends are buffered; flush writes them to the file and can force them to disk.
+ */
+public class RatingEventLog implements AutoCloseable {
+    public static final int RECORD_BYTES = 20;
+    private static final int DATA_BYTES = 16; // Covered by the CRC
+    public static final int SERIES_FLAG = 1 << 31;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    /**
+     * Receives the events of a read, in log order.
+     */
+    public interface Handler {
+        void event(long sequence, int titleKey, int userId, int rating, long epochSecond);
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private volatile long size; // Events, including the buffered ones
+    private long written; // Events in the file
+
+    public RatingEventLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = channel.size();
+        long records = length / RECORD_BYTES;
+        ByteBuffer last = ByteBuffer.allocate(RECORD_BYTES);
+        while (records > 0) {
+            last.clear();
+            channel.read(last, (records - 1) * RECORD_BYTES);
+            if (intact(crc, last, 0)) {
+                break;
+            }
+            records--;
+        }
+        if (records * RECORD_BYTES < length) {
+            System.err.println("[WARNING] Dropping " + (length - records * RECORD_BYTES) + " damaged bytes at the end of " + path);
+            channel.truncate(records * RECORD_BYTES);
+            channel.force(true);
+        }
+        channel.position(records * RECORD_BYTES);
+        this.size = records;
+        this.written = records;
+    }
+
+    public static int titleKey(boolean series, int id) {
+        return series ? id | SERIES_FLAG : id;
+    }
+
+    public static boolean isSeries(int titleKey) {
+        return (titleKey & SERIES_FLAG) != 0;
+    }
+
+    public static int titleId(int titleKey) {
+        return titleKey & ~SERIES_FLAG;
+    }
+
+    public synchronized void append(int titleKey, int userId, int rating, long epochSecond) throws IOException {
+        if (rating < 1 || rating > 10) {
+            throw new IllegalArgumentException("Vathmologia prepei na einai metaxy 1 kai 10");
+        }
+        if (buffer.remaining() < RECORD_BYTES) {
+            write();
+        }
+        int start = buffer.position();
+        buffer.putInt(titleKey).putInt(userId).putLong(epochSecond << 4 | rating);
+        crc.reset();
+        crc.update(buffer.flip().position(start)); // Leaves the position after the data
+        buffer.limit(buffer.capacity());
+        buffer.putInt((int) crc.getValue());
+        size++;
+    }
+
+    /**
+     * Writes the buffered events to the file.
+     * @param force Also forces them to disk before returning.
+     */
+    public synchronized void flush(boolean force) throws IOException {
+        write();
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        written = size;
+    }
+
+    // Number of events, the buffered ones included
+    public long size() {
+        return size;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Reads the events from a sequence number up to the end of what was flushed, in order.
+     * Can run while events are appended; those appended after the read started are not seen.
+     * @return The sequence number after the last event read.
+     */
+    public long read(long from, Handler handler) throws IOException {
+        long end;
+        synchronized (this) {
+            end = written;
+        }
+        return read(channel, from, end, handler);
+    }
+
+    /**
+     * Reads the events of a log file without opening it for appending (e.g. while another process writes it).
+     * An incomplete record at the end is not read.
+     */
+    public static long read(Path path, long from, Handler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(in, from, in.size() / RECORD_BYTES, handler);
+        }
+    }
+
+    // Large sequential reads into a direct buffer; decoding costs a few loads and a CRC per event
+    private static long read(FileChannel in, long from, long end, Handler handler) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(READ_BUFFER_BYTES - READ_BUFFER_BYTES % RECORD_BYTES);
+        CRC32C crc = new CRC32C();
+        long damaged = 0;
+        long sequence = from;
+        long position = from * RECORD_BYTES;
+        long limit = end * RECORD_BYTES;
+        while (position < limit) {
+            chunk.clear();
+            if (limit - position < chunk.capacity()) {
+                chunk.limit((int) (limit - position));
+            }
+            while (chunk.hasRemaining()) {
+                int read = in.read(chunk, position + chunk.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of the rating log at byte " + (position + chunk.position()));
+                }
+            }
+            chunk.flip();
+            for (int record = 0; record + RECORD_BYTES <= chunk.limit(); record += RECORD_BYTES) {
+                if (!intact(crc, chunk, record)) {
+                    damaged++;
+                    sequence++;
+                    continue;
+                }
+                long timeAndRating = chunk.getLong(record + 8);
+                handler.event(sequence++, chunk.getInt(record), chunk.getInt(record + 4), (int) (timeAndRating & 0xF), timeAndRating >> 4);
+            }
+            position += chunk.limit();
+        }
+        if (damaged > 0) {
+            System.err.println("[WARNING] Skipped " + damaged + " damaged rating events");
+        }
+        return sequence;
+    }
+
+    // Whether the record at an offset of the buffer matches its CRC; moves the buffer's position
+    private static boolean intact(CRC32C crc, ByteBuffer records, int offset) {
+        int limit = records.limit();
+        records.limit(offset + DATA_BYTES).position(offset);
+        crc.reset();
+        crc.update(records);
+        records.limit(limit);
+        return (int) crc.getValue() == records.getInt(offset + DATA_BYTES);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package utils;
+
+import model.ApproximateRatingStats;
+import model.HyperLogLog;
+import model.Movie;
+import model.RatingHistogram;
+import model.Series;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Every rating ever given, as immutable events in a RatingEventLog (Ratings.log next to the data files).
+ * A title's rating state (the userRatings maps, histogram and trend score) is the fold of its events
+ * in log order: the last event of a user is their rating.
+ * Events refer to a title by its id, which the data files keep (see DataLoader.recordId).
+ *
+ * The ratings column of Movies.txt / Series.txt is the snapshot. Each compaction
+ * (CatalogJournal.compact) writes it and then records in Ratings.checkpoint how many events it
+ * holds, so startup loads the data files and replays only the events after the checkpoint.
+ * Titles in approximate mode have no per-user ratings for the data files; the checkpoint holds
+ * their statistics (histogram, distinct rater sketch, trend score) instead, one line per title.
+ * The first time, the log is seeded with the ratings of the data files, so folding the whole log
+ * gives the complete state: rebuild() does that, e.g. after the way ratings are aggregated changed,
+ * and audit() lists a title's history.
+ *
+ * Single ratings reach the history as catalog events (see CatalogEvents). They are appended as they
+ * come and forced to disk once no further event waits for the history, so a burst of ratings shares one
+ * fsync (group commit, as in WriteAheadLog). The bulk importer appends its batches directly and relies
+ * on the compaction at its end.
+ */
+public class RatingHistory {
+    public static final String LOG_FILE = "Ratings.log";
+    public static final String CHECKPOINT_FILE = "Ratings.checkpoint";
+    // Take a snapshot (compact) once this many events were added after the last one
+    public static final long SNAPSHOT_INTERVAL = 100_000;
+
+    private static volatile RatingEventLog log;
+    private static String basePath;
+    private static volatile long checkpoint; // Moved by compaction, possibly on its background thread
+    private static volatile CatalogEvents.ListenerSubscriber subscription;
+    private static boolean unforced; // Events written but not forced yet; history's event thread only
+
+    private static final CatalogListener LISTENER = new CatalogListener() {
+        @Override
+        public void ratingChanged(CatalogEvent.RatingChanged event) {
+            RatingEventLog current = log; // Read once: runs on the history's event thread
+            if (current == null) {
+                return;
+            }
+            if (event.isSingle()) { // The importer appended the events of a batch
+                int titleKey = event.isMovie() ? RatingEventLog.titleKey(false, event.getMovie().getId())
+                        : RatingEventLog.titleKey(true, event.getSeries().getId());
+                try {
+                    current.append(titleKey, event.getUserId(), event.getRating(), event.getEpochSecond());
+                    current.flush(false);
+                    unforced = true;
+                } catch (IOException e) {
+                    System.err.println("[ERROR] Rating not saved in the history: " + e.getMessage());
+                }
+            }
+            forceIfIdle(current);
+        }
+
+        // Other events may end a burst of ratings too
+        @Override
+        public void movieAdded(CatalogEvent.MovieAdded event) {
+            forceIfIdle(log);
+        }
+
+        @Override
+        public void seriesAdded(CatalogEvent.SeriesAdded event) {
+            forceIfIdle(log);
+        }
+
+        @Override
+        public void seasonsChanged(CatalogEvent.SeasonsChanged event) {
+            forceIfIdle(log);
+        }
+    };
+
+    // Forces the written events once the event being handled is the last one waiting; a later event checks again
+    private static void forceIfIdle(RatingEventLog current) {
+        CatalogEvents.ListenerSubscriber handle = subscription;
+        if (!unforced || current == null || (handle != null && handle.backlog() > 1)) {
+            return;
+        }
+        try {
+            current.flush(true);
+            unforced = false;
+        } catch (IOException e) {
+            System.err.println("[ERROR] Ratings not forced to disk: " + e.getMessage());
+        }
+    }
+
+    private RatingHistory() {
+    }
+
+    /**
+     * Opens the history and replays the events after the last snapshot onto the loaded catalog.
+     * Call after the data files are loaded and the catalog journal is replayed (ratings can refer to titles added there).
+     * @param dataPath Directory of the data files (as used by DataLoader).
+     * @param newMovies Titles loaded with ratings the history has no events for (a JSON Lines feed);
+     *                  their ratings are appended as events, unless the history is started now and seeded with them anyway.
+     */
+    public static void open(String dataPath, List<Movie> newMovies, List<Series> newSeries) throws IOException {
+        close();
+        basePath = dataPath;
+        Path path = Paths.get(dataPath + LOG_FILE);
+        boolean seed = !Files.exists(path);
+        RatingEventLog opened = new RatingEventLog(path);
+        long start = System.nanoTime();
+        if (seed) {
+            // The ratings so far, as the first events; the data files are their snapshot
+            for (Movie movie : DataLoader.movies) {
+                appendAll(opened, RatingEventLog.titleKey(false, movie.getId()), movie.getUserRatings(), movie::getRatingTime);
+            }
+            for (Series series : DataLoader.seriesList) {
+                appendAll(opened, RatingEventLog.titleKey(true, series.getId()), series.getUserRatings(), series::getRatingTime);
+            }
+            opened.flush(true);
+            checkpoint = opened.size();
+            writeCheckpoint(checkpoint, snapshotApproximate());
+            System.out.println("[INFO] Started the rating history " + path + " with " + checkpoint + " ratings");
+        } else {
+            checkpoint = readCheckpoint(opened.size());
+            long unknown = replay(opened, checkpoint);
+            if (opened.size() > checkpoint) {
+                System.out.printf("[INFO] Replayed %d rating events after the snapshot in %.1f ms%s%n", opened.size() - checkpoint,
+                        (System.nanoTime() - start) / 1_000_000.0, unknown > 0 ? " (" + unknown + " for unknown titles)" : "");
+            }
+            for (Movie movie : newMovies) {
+                appendAll(opened, RatingEventLog.titleKey(false, movie.getId()), movie.getUserRatings(), movie::getRatingTime);
+            }
+            for (Series series : newSeries) {
+                appendAll(opened, RatingEventLog.titleKey(true, series.getId()), series.getUserRatings(), series::getRatingTime);
+            }
+            opened.flush(true);
+        }
+        log = opened;
+    }
+
+    private interface RatingTimes {
+        long get(int userId);
+    }
+
+    private static void appendAll(RatingEventLog to, int titleKey, Map<Integer, Integer> ratings, RatingTimes times) throws IOException {
+        for (Map.Entry<Integer, Integer> entry : ratings.entrySet()) {
+            to.append(titleKey, entry.getKey(), entry.getValue(), times.get(entry.getKey()));
+        }
+    }
+
+    // Follows the ratings from now on; once, after the catalog is loaded
+    public static void subscribe() {
+        if (subscription == null) {
+            subscription = CatalogEvents.subscribe("history", LISTENER);
+        }
+    }
+
+    // Close the event stream first (CatalogEvents.close), so the last ratings are in the history
+    public static void close() {
+        RatingEventLog current = log;
+        if (current != null) {
+            log = null;
+            try {
+                current.close();
+            } catch (IOException e) {
+                System.err.println("[ERROR] Error closing the rating history: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends the events of an import batch; the caller has applied them already.
+     * @param titleKeys Title keys as RatingEventLog.titleKey makes them from the titles' ids.
+     */
+    public static void appendBatch(int[] titleKeys, int[] userIds, byte[] ratings, long[] epochSeconds, int count) {
+        RatingEventLog current = log;
+        if (current == null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                current.append(titleKeys[i], userIds[i], ratings[i], epochSeconds[i]);
+            }
+            current.flush(false);
+        } catch (IOException e) {
+            System.err.println("[ERROR] Imported ratings not saved in the history: " + e.getMessage());
+        }
+    }
+
+    // Waits until the history holds every rating published so far; see CatalogJournal.compact
+    public static void awaitLogged() throws InterruptedException {
+        if (subscription != null) {
+            subscription.awaitHandled();
+        }
+    }
+
+    // Number of events; what awaitLogged returned for is in it
+    public static long getEventCount() {
+        RatingEventLog current = log;
+        return current == null ? 0 : current.size();
+    }
+
+    // Events replayed at the next startup
+    public static long getTail() {
+        RatingEventLog current = log;
+        return current == null ? 0 : current.size() - checkpoint;
+    }
+
+    /**
+     * Records that the data files now hold the first events of the history; the next startup replays the rest.
+     * @param events The event count when the data files were written.
+     * @param approximate snapshotApproximate() of the same moment.
+     */
+    public static void checkpoint(long events, List<String> approximate) throws IOException {
+        RatingEventLog current = log;
+        if (current == null) {
+            return;
+        }
+        current.flush(true); // Every event the checkpoint counts is on disk before it
+        writeCheckpoint(events, approximate);
+        checkpoint = events;
+    }
+
+    /**
+     * The statistics of the titles in approximate mode, as checkpoint lines:
+     * "M12 count1,...,count10 trendRankKey registers" (S for a series, registers in Base64).
+     * Take it on the thread that edits the catalog, together with getEventCount.
+     */
+    public static List<String> snapshotApproximate() {
+        List<String> lines = new ArrayList<>();
+        for (Movie movie : DataLoader.movies) {
+            ApproximateRatingStats stats = movie.getApproximateStats();
+            if (stats != null) {
+                lines.add(formatApproximate("M" + movie.getId(), stats, movie.getTrendScore().getRankKey()));
+            }
+        }
+        for (Series series : DataLoader.seriesList) {
+            ApproximateRatingStats stats = series.getApproximateStats();
+            if (stats != null) {
+                lines.add(formatApproximate("S" + series.getId(), stats, series.getTrendScore().getRankKey()));
+            }
+        }
+        return lines;
+    }
+
+    private static String formatApproximate(String title, ApproximateRatingStats stats, double trendRankKey) {
+        StringJoiner counts = new StringJoiner(",");
+        for (int rating = 1; rating <= RatingHistogram.BUCKETS; rating++) {
+            counts.add(String.valueOf(stats.getHistogram().getCount(rating)));
+        }
+        return title + " " + counts + " " + trendRankKey + " " + Base64.getEncoder().encodeToString(stats.getRaters().getRegisters());
+    }
+
+    // Puts a title back in approximate mode from its checkpoint line
+    private static void restoreApproximate(String line) {
+        String[] f = line.trim().split(" ");
+        if (f.length != 4) {
+            throw new IllegalArgumentException("Lathos morfi");
+        }
+        int id = Integer.parseInt(f[0].substring(1));
+        RatingHistogram histogram = new RatingHistogram();
+        String[] counts = f[1].split(",");
+        for (int rating = 1; rating <= counts.length; rating++) {
+            histogram.add(rating, Long.parseLong(counts[rating - 1]));
+        }
+        ApproximateRatingStats stats = new ApproximateRatingStats(new HyperLogLog(Base64.getDecoder().decode(f[3])), histogram);
+        double trendRankKey = Double.parseDouble(f[2]);
+        if (f[0].startsWith("S")) {
+            Series series = DataLoader.findSeriesById(id);
+            if (series == null) {
+                throw new IllegalArgumentException("Series not found: " + id);
+            }
+            series.restoreApproximateStats(stats, trendRankKey);
+        } else {
+            Movie movie = DataLoader.findMovieById(id);
+            if (movie == null) {
+                throw new IllegalArgumentException("Movie not found: " + id);
+            }
+            movie.restoreApproximateStats(stats, trendRankKey);
+        }
+    }
+
+    /**
+     * Rebuilds the ratings of every title by folding the whole history, e.g. after the aggregates
+     * (histogram, trend score) changed. Run on the thread that edits the catalog, with no ratings
+     * coming in; compact afterwards so the data files match.
+     * @return The number of events folded.
+     */
+    public static long rebuild() throws IOException {
+        RatingEventLog current = log;
+        if (current == null) {
+            throw new IllegalStateException("To istoriko vathmologion den einai anoixto");
+        }
+        current.flush(false);
+        long start = System.nanoTime();
+        DataLoader.movies.forEach(Movie::clearUserRatings);
+        DataLoader.seriesList.forEach(Series::clearUserRatings);
+        long unknown = replay(current, 0);
+        long events = current.size();
+        Rankings.rebuild();
+        System.out.printf("[INFO] Rebuilt the ratings from %d events in %.2f s%s%n", events, (System.nanoTime() - start) / 1e9,
+                unknown > 0 ? " (" + unknown + " for unknown titles)" : "");
+        return events;
+    }
+
+    // Every rating event of a movie, oldest first
+    public static void audit(Movie movie, RatingEventLog.Handler handler) throws IOException {
+        audit(RatingEventLog.titleKey(false, movie.getId()), handler);
+    }
+
+    public static void audit(Series series, RatingEventLog.Handler handler) throws IOException {
+        audit(RatingEventLog.titleKey(true, series.getId()), handler);
+    }
+
+    private static void audit(int titleKey, RatingEventLog.Handler handler) throws IOException {
+        RatingEventLog current = log;
+        if (current == null) {
+            throw new IllegalStateException("To istoriko vathmologion den einai anoixto");
+        }
+        current.flush(false);
+        current.read(0, (sequence, key, userId, rating, epochSecond) -> {
+            if (key == titleKey) {
+                handler.event(sequence, key, userId, rating, epochSecond);
+            }
+        });
+    }
+
+    /**
+     * Folds the events from a sequence number on into the catalog's titles, with the same result as
+     * adding them one by one. A rating its user replaced later in the range only adds to the trend
+     * score: writing it to the rating maps, most of the cost, would be undone anyway. Titles in
+     * approximate mode take every event, since their histogram also counts replaced ratings.
+     * @return The number of events for titles that don't exist.
+     */
+    public static long replay(RatingEventLog from, long sequence) throws IOException {
+        LastEvents last = new LastEvents();
+        from.read(sequence, (event, titleKey, userId, rating, epochSecond) -> last.put(pair(titleKey, userId), event));
+        long[] unknown = new long[1];
+        // Events appended in between aren't in last, so they are added in full, which is always right
+        from.read(sequence, (event, titleKey, userId, rating, epochSecond) -> {
+            long latest = last.get(pair(titleKey, userId));
+            boolean replaced = latest > event;
+            int id = RatingEventLog.titleId(titleKey);
+            if (RatingEventLog.isSeries(titleKey)) {
+                Series series = DataLoader.findSeriesById(id);
+                if (series == null) {
+                    unknown[0]++;
+                } else if (replaced && !series.isApproximate()) {
+                    series.getTrendScore().record(rating, epochSecond);
+                } else {
+                    series.addUserRating(userId, rating, epochSecond);
+                }
+            } else {
+                Movie movie = DataLoader.findMovieById(id);
+                if (movie == null) {
+                    unknown[0]++;
+                } else if (replaced && !movie.isApproximate()) {
+                    movie.getTrendScore().record(rating, epochSecond);
+                } else {
+                    movie.addUserRating(userId, rating, epochSecond);
+                }
+            }
+        });
+        return unknown[0];
+    }
+
+    private static long pair(int titleKey, int userId) {
+        return (long) titleKey << 32 | (userId & 0xFFFFFFFFL);
+    }
+
+    // (title, user) -> sequence number of its last event; open addressing over primitive arrays
+    private static class LastEvents {
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024]; // Sequence number + 1; 0 marks an empty slot
+        private int size;
+
+        void put(long key, long sequence) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int slot = find(keys, values, key);
+            if (values[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = sequence + 1;
+        }
+
+        // -1 if the pair has no event
+        long get(long key) {
+            return values[find(keys, values, key)] - 1;
+        }
+
+        private static int find(long[] keys, long[] values, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (values[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    int slot = find(keys, values, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    // Reads the checkpoint and restores the approximate titles it holds
+    private static long readCheckpoint(long events) throws IOException {
+        Path path = Paths.get(basePath + CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            System.err.println("[WARNING] " + path + " is missing; replaying the whole rating history");
+            return 0;
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        long value;
+        try {
+            value = Long.parseLong(lines.isEmpty() ? "" : lines.get(0).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[WARNING] Invalid " + path + "; replaying the whole rating history");
+            return 0;
+        }
+        List<String> approximate = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                restoreApproximate(line);
+                approximate.add(line);
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Skipping approximate statistics '" + line.split(" ")[0] + "' in " + path + ": " + e.getMessage());
+            }
+        }
+        if (value > events) {
+            // Events the snapshot holds were lost from the log; the snapshot is still complete
+            System.err.println("[WARNING] The rating history ends before its checkpoint (" + events + " < " + value + ")");
+            writeCheckpoint(events, approximate); // New events must not fall before it
+            return events;
+        }
+        return value;
+    }
+
+    // The event count on the first line, then the approximate titles; one atomic write, so both always match
+    private static void writeCheckpoint(long events, List<String> approximate) throws IOException {
+        CatalogJournal.writeAtomically(Paths.get(basePath + CHECKPOINT_FILE), out -> {
+            out.write(String.valueOf(events));
+            for (String line : approximate) {
+                out.newLine();
+                out.write(line);
+            }
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package utils;
+
+import model.Movie;
+import model.Series;
+import model.TrendScore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk import of rating events, one per line: userId,titleId,rating[,epochSecond].
+ * A titleId is a movie id, or a series id prefixed with S (e.g. S12); M is accepted for movies.
+ *
+ * Three stages connected by bounded queues: a reader thread cuts the file into chunks of lines
+ * (a compressed copy such as events.txt.gz is read when events.txt is missing, see
+ * DataLoader.openDataFile), parser threads turn chunks into batches of primitive events, and the
+ * calling thread applies the batches in file order. A full queue
+ * blocks the stage before it, so memory stays at a few chunks however large the file is.
+ * Within a batch the events are grouped by title: each title is looked up once, and one bulk
+ * RatingChanged event per title and batch goes to the catalog event stream (see CatalogEvents),
+ * so leaderboards and views update once per batch instead of once per event. Each batch is
+ * appended to the rating history (see RatingHistory) in file order; it is forced to disk by one
+ * compaction of the data files at the end (CatalogJournal.compact), not per event.
+ * Must run on the thread that edits the catalog.
+ */
+public class RatingImporter {
+    public static final int CHUNK_LINES = 8192;
+    public static final int QUEUE_CHUNKS = 8; // Per queue, so at most a few chunks are in memory
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+    private static final int SERIES_FLAG = RatingEventLog.SERIES_FLAG; // Marks series ids in a packed title key, as in the history
+    private static final int UNKNOWN_TITLE = -1; // History key of an event whose title doesn't exist
+    private static final int MAX_LOGGED_ERRORS = 10;
+
+    /**
+     * Counts and speed of an import.
+     */
+    public static class Result {
+        private long lines;
+        private long applied;
+        private long invalid;
+        private long unknownTitles;
+        private long batches;
+        private long titleUpdates;
+        private long nanos;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getApplied() {
+            return applied;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public long getUnknownTitles() {
+            return unknownTitles;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        // Change events published; one per title per batch
+        public long getTitleUpdates() {
+            return titleUpdates;
+        }
+
+        public double getSeconds() {
+            return nanos / 1_000_000_000.0;
+        }
+
+        public double getEventsPerSecond() {
+            return nanos == 0 ? 0 : lines / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d events (%d applied, %d invalid, %d unknown titles) in %d batches, %d title updates, %.2f s, %.0f events/s",
+                    lines, applied, invalid, unknownTitles, batches, titleUpdates, getSeconds(), getEventsPerSecond());
+        }
+    }
+
+    // A chunk of lines, or the end marker (lines == null)
+    private static class Chunk {
+        final long sequence;
+        final List<String> lines;
+
+        Chunk(long sequence, List<String> lines) {
+            this.sequence = sequence;
+            this.lines = lines;
+        }
+    }
+
+    // Parsed events of one chunk, in primitive arrays; keys[i] = title key << 32 | event index
+    private static class Batch {
+        final long sequence;
+        final int[] users;
+        final int[] titles;
+        final byte[] ratings;
+        final long[] times;
+        long[] keys;
+        int size;
+        int invalid;
+
+        Batch(long sequence, int capacity) {
+            this.sequence = sequence;
+            this.users = new int[capacity];
+            this.titles = new int[capacity];
+            this.ratings = new byte[capacity];
+            this.times = new long[capacity];
+        }
+    }
+
+    private static final Chunk END = new Chunk(-1, null);
+    private static final Batch END_BATCH = new Batch(-1, 0);
+
+    private final int parserThreads;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private int loggedErrors;
+
+    /**
+     * @param parserThreads Number of parser threads (at least 1).
+     */
+    public RatingImporter(int parserThreads) {
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("Xreiazetai toulaxiston ena nima analysis");
+        }
+        this.parserThreads = parserThreads;
+    }
+
+    public Result importFile(String path) throws IOException, InterruptedException {
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        BufferedReader in = DataLoader.openDataFile(path);
+        long start = System.nanoTime();
+
+        Thread reader = new Thread(() -> readChunks(in, chunks), "ratings-reader");
+        reader.setDaemon(true);
+        reader.start();
+        List<Thread> parsers = new ArrayList<>();
+        for (int i = 0; i < parserThreads; i++) {
+            Thread parser = new Thread(() -> parseChunks(chunks, batches), "ratings-parser-" + i);
+            parser.setDaemon(true);
+            parser.start();
+            parsers.add(parser);
+        }
+
+        Result result = new Result();
+        try {
+            applyBatches(batches, result, start);
+        } finally {
+            reader.interrupt(); // Only needed if applying failed; the threads have ended otherwise
+            parsers.forEach(Thread::interrupt);
+            in.close();
+        }
+        Throwable error = failure.get();
+        if (error != null) {
+            throw error instanceof IOException ? (IOException) error : new IOException(error);
+        }
+
+        CatalogJournal.compact(); // Makes the imported ratings durable in one write
+        result.nanos = System.nanoTime() - start;
+        System.out.println("[INFO] Imported ratings from " + path + ": " + result);
+        return result;
+    }
+
+    // Stage 1: cuts the file into chunks; blocks while the parsers are behind
+    private void readChunks(BufferedReader in, BlockingQueue<Chunk> chunks) {
+        try {
+            long sequence = 0;
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    chunks.put(new Chunk(sequence++, lines));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.put(new Chunk(sequence, lines));
+            }
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                chunks.put(END);
+            }
+        } catch (InterruptedException e) {
+            // Applying was cancelled
+        }
+    }
+
+    // Stage 2: parses chunks into batches; blocks while the applier is behind
+    private void parseChunks(BlockingQueue<Chunk> chunks, BlockingQueue<Batch> batches) {
+        try {
+            while (true) {
+                Chunk chunk = chunks.take();
+                if (chunk == END) {
+                    batches.put(END_BATCH);
+                    return;
+                }
+                batches.put(parse(chunk));
+            }
+        } catch (InterruptedException e) {
+            // Cancelled
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            try {
+                batches.put(END_BATCH);
+            } catch (InterruptedException ignored) {
+                // Cancelled
+            }
+        }
+    }
+
+    private Batch parse(Chunk chunk) {
+        Batch batch = new Batch(chunk.sequence, chunk.lines.size());
+        for (String line : chunk.lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            try {
+                if (fields.length != 3 && fields.length != 4) {
+                    throw new IllegalArgumentException("Lathos plithos pedion");
+                }
+                String title = fields[1].trim();
+                int titleKey;
+                if (title.startsWith("S") || title.startsWith("s")) {
+                    titleKey = Integer.parseInt(title.substring(1)) | SERIES_FLAG;
+                } else if (title.startsWith("M") || title.startsWith("m")) {
+                    titleKey = Integer.parseInt(title.substring(1));
+                } else {
+                    titleKey = Integer.parseInt(title);
+                }
+                int rating = Integer.parseInt(fields[2].trim());
+                if (rating < 1 || rating > 10) {
+                    throw new IllegalArgumentException("Vathmologia prepei na einai metaxy 1 kai 10");
+                }
+                int i = batch.size++;
+                batch.users[i] = Integer.parseInt(fields[0].trim());
+                batch.titles[i] = titleKey;
+                batch.ratings[i] = (byte) rating;
+                batch.times[i] = fields.length == 4 ? Long.parseLong(fields[3].trim()) : TrendScore.UNKNOWN_TIME;
+            } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                batch.invalid++;
+                logError("Invalid rating line '" + line + "': " + e.getMessage());
+            }
+        }
+        // Sorting title key << 32 | index groups each title's events and keeps their file order
+        batch.keys = new long[batch.size];
+        for (int i = 0; i < batch.size; i++) {
+            batch.keys[i] = ((long) batch.titles[i] << 32) | i;
+        }
+        Arrays.sort(batch.keys);
+        return batch;
+    }
+
+    // Stage 3: applies batches in file order, reordering what the parsers finished out of order
+    private void applyBatches(BlockingQueue<Batch> batches, Result result, long start) throws InterruptedException {
+        Map<Long, Batch> waiting = new TreeMap<>();
+        long next = 0;
+        int ended = 0;
+        long lastProgress = start;
+        while (ended < parserThreads && failure.get() == null) { // After a failure a chunk is missing
+            Batch batch = batches.take();
+            if (batch == END_BATCH) {
+                ended++;
+                continue;
+            }
+            waiting.put(batch.sequence, batch);
+            Batch ready;
+            while ((ready = waiting.remove(next)) != null) {
+                apply(ready, result);
+                next++;
+            }
+            long now = System.nanoTime();
+            if (now - lastProgress > PROGRESS_NANOS) {
+                lastProgress = now;
+                System.out.printf("[INFO] Imported %d events (%.0f events/s)...%n", result.lines, result.lines / ((now - start) / 1e9));
+            }
+        }
+    }
+
+    private void apply(Batch batch, Result result) {
+        result.batches++;
+        result.lines += batch.size + batch.invalid;
+        result.invalid += batch.invalid;
+        Map<Movie, Integer> changedMovies = new HashMap<>(); // Title -> ratings added in this batch
+        Map<Series, Integer> changedSeries = new HashMap<>();
+        int i = 0;
+        while (i < batch.size) {
+            int titleKey = (int) (batch.keys[i] >>> 32);
+            int end = i;
+            while (end < batch.size && (int) (batch.keys[end] >>> 32) == titleKey) {
+                end++;
+            }
+            // One lookup for the title's whole group
+            DataLoader.RatingTarget target;
+            if ((titleKey & SERIES_FLAG) != 0) {
+                Series series = DataLoader.findSeriesById(titleKey & ~SERIES_FLAG);
+                target = series == null ? null : series::addUserRating;
+                if (series != null) {
+                    changedSeries.merge(series, end - i, Integer::sum);
+                }
+            } else {
+                Movie movie = DataLoader.findMovieById(titleKey);
+                target = movie == null ? null : movie::addUserRating;
+                if (movie != null) {
+                    changedMovies.merge(movie, end - i, Integer::sum);
+                }
+            }
+            if (target == null) {
+                for (int k = i; k < end; k++) {
+                    batch.titles[(int) batch.keys[k]] = UNKNOWN_TITLE; // Not read again but by appendToHistory
+                }
+                result.unknownTitles += end - i;
+                logError("Unknown title " + ((titleKey & SERIES_FLAG) != 0 ? "S" + (titleKey & ~SERIES_FLAG) : String.valueOf(titleKey))
+                        + " (" + (end - i) + " events)");
+            } else {
+                result.applied += end - i;
+                for (; i < end; i++) {
+                    int event = (int) batch.keys[i];
+                    target.addUserRating(batch.users[event], batch.ratings[event], batch.times[event]);
+                }
+            }
+            i = end;
+        }
+        appendToHistory(batch);
+        // Derived structures once per title per batch
+        changedMovies.forEach((movie, count) -> CatalogEvents.publish(CatalogEvent.RatingChanged.bulk(movie, count)));
+        changedSeries.forEach((series, count) -> CatalogEvents.publish(CatalogEvent.RatingChanged.bulk(series, count)));
+        result.titleUpdates += changedMovies.size() + changedSeries.size();
+    }
+
+    // The applied events in file order; events of unknown titles are left out (in place, the batch is done)
+    private static void appendToHistory(Batch batch) {
+        int kept = 0;
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.titles[i] != UNKNOWN_TITLE) {
+                batch.titles[kept] = batch.titles[i];
+                batch.users[kept] = batch.users[i];
+                batch.ratings[kept] = batch.ratings[i];
+                batch.times[kept] = batch.times[i];
+                kept++;
+            }
+        }
+        RatingHistory.appendBatch(batch.titles, batch.users, batch.ratings, batch.times, kept);
+    }
+
+    private synchronized void logError(String message) {
+        if (loggedErrors < MAX_LOGGED_ERRORS) {
+            System.err.println("[WARNING] " + message);
+        } else if (loggedErrors == MAX_LOGGED_ERRORS) {
+            System.err.println("[WARNING] More rating import errors; only counting them from now on");
+        }
+        loggedErrors++;
+    }
+}
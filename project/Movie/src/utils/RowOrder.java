@@ -0,0 +1,125 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A display order over catalog rows (indexes into DataLoader.movies / DataLoader.seriesList)
+ * together with its inverse, so the position of any row is known in O(1).
+ * Any selection read in this order is sorted by rank, which lets two selections be diffed with a merge.
+ */
+public class RowOrder {
+    private int[] rows;  // position -> row id
+    private int[] ranks; // row id -> position
+    private int size;
+
+    public RowOrder(int[] rows) {
+        this.rows = rows;
+        this.size = rows.length;
+        this.ranks = new int[Math.max(rows.length, 16)];
+        for (int position = 0; position < rows.length; position++) {
+            ranks[rows[position]] = position;
+        }
+    }
+
+    // Used by the descending view, which keeps no arrays of its own
+    private RowOrder() {
+    }
+
+    // Rows in catalog order
+    public static RowOrder natural(int size) {
+        return new RowOrder(IntStream.range(0, size).toArray());
+    }
+
+    // Adds a new row at the end of the order. Amortized O(1).
+    public void append(int row) {
+        insert(size, row);
+    }
+
+    /**
+     * Adds a new row at the given position, shifting the rows after it. O(n) array moves.
+     */
+    public void insert(int position, int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(16, size * 2));
+        }
+        if (row >= ranks.length) {
+            ranks = Arrays.copyOf(ranks, Math.max(row + 1, ranks.length * 2));
+        }
+        System.arraycopy(rows, position, rows, position + 1, size - position);
+        rows[position] = row;
+        size++;
+        for (int p = position; p < size; p++) {
+            ranks[rows[p]] = p;
+        }
+    }
+
+    // Takes a row out of the order (e.g. before re-inserting it at a new position). O(n) array moves.
+    public void remove(int row) {
+        int position = ranks[row];
+        System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+        size--;
+        for (int p = position; p < size; p++) {
+            ranks[rows[p]] = p;
+        }
+    }
+
+    public int rank(int row) {
+        return ranks[row];
+    }
+
+    public int rowAt(int position) {
+        return rows[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(rows, 0, size);
+    }
+
+    /**
+     * The same order read back to front. It is a live view: changes to this order show up in it.
+     */
+    public RowOrder descending() {
+        RowOrder ascending = this;
+        return new RowOrder() {
+            @Override
+            public void insert(int position, int row) {
+                throw new UnsupportedOperationException("Descending view is read-only");
+            }
+
+            @Override
+            public void remove(int row) {
+                throw new UnsupportedOperationException("Descending view is read-only");
+            }
+
+            @Override
+            public int rank(int row) {
+                return ascending.size() - 1 - ascending.rank(row);
+            }
+
+            @Override
+            public int rowAt(int position) {
+                return ascending.rowAt(ascending.size() - 1 - position);
+            }
+
+            @Override
+            public int size() {
+                return ascending.size();
+            }
+
+            @Override
+            public IntStream stream() {
+                return IntStream.range(0, ascending.size()).map(this::rowAt);
+            }
+
+            @Override
+            public RowOrder descending() {
+                return ascending;
+            }
+        };
+    }
+}
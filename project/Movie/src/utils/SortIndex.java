@@ -0,0 +1,132 @@
+package utils;
+
+import java.text.CollationKey;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed ascending permutation of catalog rows for one sortable column.
+ * Built once (O(n log n)); afterwards new rows and rows whose value changed are placed with a
+ * binary search, so showing the column sorted is just a read of the permutation.
+ * Ties are broken by row id so every row has exactly one position.
+ */
+public class SortIndex {
+
+    public interface RowComparator {
+        int compare(int rowA, int rowB);
+    }
+
+    private final RowComparator comparator;
+    private final IntConsumer keyRefresher; // Recomputes the cached key of a row
+    private final RowOrder order;
+
+    // The keys of rows 0..size-1 must be in place already
+    private SortIndex(int size, RowComparator comparator, IntConsumer keyRefresher) {
+        this.comparator = comparator;
+        this.keyRefresher = keyRefresher;
+        int[] rows = IntStream.range(0, size)
+                .boxed()
+                .sorted(comparator::compare)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.order = new RowOrder(rows);
+    }
+
+    /**
+     * Index over a numeric column. The value of each row is kept next to the index, like byText's keys,
+     * and read again from the model only when the row is inserted or updated. So the order always
+     * matches the kept values, even while other rows of the same batch have changed but not been updated yet.
+     * @param size Number of catalog rows.
+     * @param key The column value of a row.
+     */
+    public static SortIndex byNumber(int size, IntToDoubleFunction key) {
+        double[] values = new double[size];
+        for (int row = 0; row < size; row++) {
+            values[row] = key.applyAsDouble(row);
+        }
+        return byNumber(values, key);
+    }
+
+    /**
+     * Index over a numeric column whose values were read beforehand, e.g. on the FX thread before
+     * sorting on another one. The sort only reads the array; key is used for later inserts and updates.
+     * @param values The column value of each row; the index takes the array over.
+     * @param key The column value of a row.
+     */
+    public static SortIndex byNumber(double[] values, IntToDoubleFunction key) {
+        double[][] keys = {values}; // Holder so the array can grow
+        RowComparator comparator = (a, b) -> {
+            int result = Double.compare(keys[0][a], keys[0][b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        };
+        IntConsumer keyRefresher = row -> {
+            if (row >= keys[0].length) {
+                keys[0] = Arrays.copyOf(keys[0], Math.max(row + 1, keys[0].length * 2));
+            }
+            keys[0][row] = key.applyAsDouble(row);
+        };
+        return new SortIndex(values.length, comparator, keyRefresher);
+    }
+
+    /**
+     * Index over a text column in Greek-aware order (see Collation). The CollationKey of each
+     * row is kept next to the index, so comparisons are byte comparisons without cache lookups.
+     * @param size Number of catalog rows.
+     * @param text The column text of a row.
+     */
+    public static SortIndex byText(int size, IntFunction<String> text) {
+        CollationKey[][] keys = {new CollationKey[Math.max(size, 16)]}; // Holder so the array can grow
+        RowComparator comparator = (a, b) -> {
+            int result = keys[0][a].compareTo(keys[0][b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        };
+        IntConsumer keyRefresher = row -> {
+            if (row >= keys[0].length) {
+                keys[0] = Arrays.copyOf(keys[0], Math.max(row + 1, keys[0].length * 2));
+            }
+            keys[0][row] = Collation.keyOf(text.apply(row));
+        };
+        for (int row = 0; row < size; row++) {
+            keyRefresher.accept(row);
+        }
+        return new SortIndex(size, comparator, keyRefresher);
+    }
+
+    // A row was added to the catalog
+    public void insert(int row) {
+        keyRefresher.accept(row);
+        order.insert(findPosition(row), row);
+    }
+
+    // The column value of a row changed; its kept key is refreshed between taking it out and placing it again
+    public void update(int row) {
+        order.remove(row);
+        insert(row);
+    }
+
+    public RowOrder ascending() {
+        return order;
+    }
+
+    public RowOrder descending() {
+        return order.descending();
+    }
+
+    // First position whose row sorts after the given row
+    private int findPosition(int row) {
+        int low = 0;
+        int high = order.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(order.rowAt(mid), row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
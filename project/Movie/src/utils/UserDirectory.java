@@ -0,0 +1,53 @@
+package utils;
+
+import model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Users indexed by username and by id, so login and id lookups are O(1)
+ * instead of a scan of DataLoader.users.
+ */
+public class UserDirectory {
+    private final Map<String, User> byUsername = new HashMap<>();
+    private final Map<Integer, User> byId = new HashMap<>();
+
+    /**
+     * Adds a user to both indexes.
+     * @return false if the username is already taken; the first user with a username keeps it.
+     */
+    public boolean add(User user) {
+        if (byUsername.putIfAbsent(user.getUsername(), user) != null) {
+            return false;
+        }
+        byId.put(user.getId(), user);
+        return true;
+    }
+
+    public User findByUsername(String username) {
+        return byUsername.get(username);
+    }
+
+    public User findById(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Checks username and email together, like User.verifyCredentials.
+     * @return The user, or null if the credentials don't match.
+     */
+    public User authenticate(String username, String email) {
+        User user = byUsername.get(username);
+        return user != null && user.verifyCredentials(username, email) ? user : null;
+    }
+
+    public int size() {
+        return byUsername.size();
+    }
+
+    public void clear() {
+        byUsername.clear();
+        byId.clear();
+    }
+}
@@ -0,0 +1,245 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of text records. Each record is framed as [length][CRC32][UTF-8 bytes],
+ * so a record cut short by a crash is detected on replay and dropped with everything after it.
+ * Appends are written by one writer thread: whatever is queued when it wakes up is written
+ * together and made durable with a single fsync (group commit).
+ */
+public class WriteAheadLog {
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024; // Anything larger is corruption
+
+    private enum Kind { RECORD, TRUNCATE, CLOSE }
+
+    private static class Pending {
+        final Kind kind;
+        final byte[] record; // Only for RECORD
+        final long upTo; // Only for TRUNCATE: records appended when the snapshot was taken
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        Pending(Kind kind, byte[] record, long upTo) {
+            this.kind = kind;
+            this.record = record;
+            this.upTo = upTo;
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile long recordCount; // Records in the log file
+    private final AtomicLong appendedCount = new AtomicLong(); // Records ever appended, the existing ones included
+    private long writtenCount; // Of those, written to the file; only used by the writer thread
+    private volatile long syncCount;
+
+    /**
+     * Opens the log for appending. Call replay first, so a damaged tail has been cut off.
+     * @param existingRecords Number of records replay found in the file.
+     */
+    public WriteAheadLog(Path path, long existingRecords) throws IOException {
+        this.path = path;
+        this.recordCount = existingRecords;
+        this.appendedCount.set(existingRecords);
+        this.writtenCount = existingRecords;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Reads every intact record of a log file in order. A damaged or incomplete record at the
+     * end (a crash during a write) is cut off, so later appends follow the last good record.
+     * @param path The log file; a missing file has no records.
+     */
+    public static List<String> replay(Path path) throws IOException {
+        List<String> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return records;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            long position = 0;
+            long size = in.size();
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                in.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length < 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                in.read(body, position + HEADER_BYTES);
+                if (checksum(body.array()) != checksum) {
+                    break;
+                }
+                records.add(new String(body.array(), StandardCharsets.UTF_8));
+                position += HEADER_BYTES + length;
+            }
+            if (position < size) {
+                System.err.println("[WARNING] Dropping " + (size - position) + " damaged bytes at the end of " + path);
+                in.truncate(position);
+                in.force(true);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Queues a record. The returned future completes once the record is on disk.
+     */
+    public CompletableFuture<Void> append(String record) {
+        if (closed) {
+            throw new IllegalStateException("To log einai kleisto");
+        }
+        Pending pending = new Pending(Kind.RECORD, record.getBytes(StandardCharsets.UTF_8), 0);
+        appendedCount.incrementAndGet(); // Before it is queued, so a truncate queued in between keeps it
+        queue.add(pending);
+        return pending.done.thenApply(written -> null);
+    }
+
+    /**
+     * Empties the log once every record queued before this call is written, e.g. after compaction
+     * has folded them into the base files, but only if no record was appended after the snapshot.
+     * @param upTo getAppendedCount() when the snapshot was taken.
+     * @return Completes with false if records were appended since; the log is then kept as it is.
+     */
+    public CompletableFuture<Boolean> truncate(long upTo) {
+        Pending pending = new Pending(Kind.TRUNCATE, null, upTo);
+        queue.add(pending);
+        return pending.done;
+    }
+
+    // Records appended so far, including those still queued and those in the file when it was opened
+    public long getAppendedCount() {
+        return appendedCount.get();
+    }
+
+    // Writes what is still queued and stops the writer
+    public void close() {
+        closed = true;
+        queue.add(new Pending(Kind.CLOSE, null, 0)); // Not an interrupt: that would close the channel mid-write
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("[ERROR] Error closing " + path + ": " + e.getMessage());
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Number of fsyncs so far; with group commit this is lower than the number of records
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            running = writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the records in order, one fsync per run of records; a truncation splits the run.
+     * @return false once the close marker is reached.
+     */
+    private boolean writeBatch(List<Pending> batch) {
+        List<Pending> written = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (pending.kind == Kind.RECORD) {
+                written.add(pending);
+                continue;
+            }
+            sync(written);
+            written.clear();
+            if (pending.kind == Kind.CLOSE) {
+                pending.done.complete(null);
+                return false;
+            }
+            if (writtenCount != pending.upTo) {
+                pending.done.complete(false); // Records after the snapshot; a write error also keeps the log
+                continue;
+            }
+            try {
+                channel.truncate(0);
+                channel.force(true);
+                recordCount = 0;
+                pending.done.complete(true);
+            } catch (IOException e) {
+                pending.done.completeExceptionally(e);
+            }
+        }
+        sync(written);
+        return true;
+    }
+
+    private void sync(List<Pending> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            int bytes = 0;
+            for (Pending pending : records) {
+                bytes += HEADER_BYTES + pending.record.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(bytes);
+            for (Pending pending : records) {
+                buffer.putInt(pending.record.length);
+                buffer.putInt(checksum(pending.record));
+                buffer.put(pending.record);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            recordCount += records.size();
+            writtenCount += records.size();
+            syncCount++;
+            records.forEach(pending -> pending.done.complete(true));
+        } catch (IOException e) {
+            System.err.println("[ERROR] Error writing to " + path + ": " + e.getMessage());
+            records.forEach(pending -> pending.done.completeExceptionally(e));
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}